@@ -0,0 +1,15 @@
+package com.example.decathlon.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs JMH with the gc profiler always on, so every result carries its allocation rate.
+// Any JMH option is passed through, e.g. "CompetitionBenchmark.standings -p competitors=1000 -t 8".
+public class Benchmarks {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.core.CompetitionMetrics;
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.persist.WalSettings;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Run with -t 1,2,4,.. (or -t max) to see how scoring and reads scale with threads.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CompetitionBenchmark {
+    @Param({"40", "1000", "100000", "1000000"})
+    public int competitors;
+
+    @Param({"DEC", "HEP"})
+    public String mode;
+
+    @Param({"monitor", "concurrent"})
+    public String concurrency;
+
+    // on records into a Prometheus registry, as the application does
+    @Param({"off", "on"})
+    public String metrics;
+
+    private CompetitionService comp;
+    private String[] names;
+    private int[] ids;
+    private int firstEvent, eventCount, modeOrdinal;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ScoringService scoring = new ScoringService(false);
+        CompetitionMetrics m = metrics.equals("on")
+                ? new CompetitionMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), "bench", scoring.registry())
+                : CompetitionMetrics.NONE;
+        comp = new CompetitionService(scoring, concurrency, WalSettings.disabled(), m);
+        EventRegistry r = comp.registry();
+        modeOrdinal = r.mode(mode);
+        firstEvent = r.firstEvent(modeOrdinal);
+        eventCount = r.eventCount(modeOrdinal);
+        names = new String[competitors];
+        ids = new int[competitors];
+        for (int i = 0; i < competitors; i++) {
+            names[i] = "Competitor " + i;
+            ids[i] = comp.addCompetitor(names[i]);
+        }
+        for (int ev = firstEvent; ev < firstEvent + eventCount; ev++) {
+            double[] marks = Marks.random(r, ev, competitors, ev);
+            for (int i = 0; i < competitors; i++) comp.score(names[i], ev, marks[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rnd {
+        final SplittableRandom rnd = new SplittableRandom(Thread.currentThread().threadId());
+    }
+
+    @Benchmark
+    public int score(Rnd t) {
+        int ev = firstEvent + t.rnd.nextInt(eventCount);
+        EventRegistry r = comp.registry();
+        double raw = r.min(ev) + t.rnd.nextDouble() * (r.max(ev) - r.min(ev));
+        return comp.score(names[t.rnd.nextInt(competitors)], ev, raw);
+    }
+
+    // A fresh name string per call, as parsed from a request body, so its hash is not cached
+    @Benchmark
+    public int scoreByName(Rnd t) {
+        int ev = firstEvent + t.rnd.nextInt(eventCount);
+        EventRegistry r = comp.registry();
+        double raw = r.min(ev) + t.rnd.nextDouble() * (r.max(ev) - r.min(ev));
+        return comp.score(new String(names[t.rnd.nextInt(competitors)]), ev, raw);
+    }
+
+    @Benchmark
+    public int scoreById(Rnd t) {
+        int ev = firstEvent + t.rnd.nextInt(eventCount);
+        EventRegistry r = comp.registry();
+        double raw = r.min(ev) + t.rnd.nextDouble() * (r.max(ev) - r.min(ev));
+        return comp.scoreById(ids[t.rnd.nextInt(competitors)], ev, raw);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> standings() {
+        return comp.standings(modeOrdinal);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> standingsTop20() {
+        return comp.standings(modeOrdinal, 0, 20);
+    }
+
+    // Every call invalidates the snapshot, so this is the cost of one write plus one full rebuild
+    @Benchmark
+    public List<Map<String, Object>> scoreThenStandings(Rnd t) {
+        score(t);
+        return comp.standings(modeOrdinal, 0, 1001);
+    }
+
+    @Benchmark
+    public String exportCsv() {
+        return comp.exportCsv(modeOrdinal);
+    }
+}
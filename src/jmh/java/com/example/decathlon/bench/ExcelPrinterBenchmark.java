@@ -0,0 +1,57 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.excel.ExcelPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// One iteration builds and writes a whole workbook, so this is measured as single shots.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ExcelPrinterBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    // 0 = in-memory XSSF with autoSizeColumn, otherwise the SXSSF row window
+    @Param({"0", "1000"})
+    public int window;
+
+    private Object[][] data;
+    private File out;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = new Object[rows + 1][];
+        data[0] = new Object[]{"Name", "Event", "Result", "Points"};
+        for (int i = 1; i <= rows; i++) {
+            data[i] = new Object[]{"Competitor " + i, "100m", 10.0 + (i % 500) / 100.0, 700 + i % 400};
+        }
+        out = File.createTempFile("bench", ".xlsx");
+        out.deleteOnExit();
+    }
+
+    private ExcelPrinter printer() throws IOException {
+        return window == 0 ? new ExcelPrinter("bench") : new ExcelPrinter("bench", window);
+    }
+
+    @Benchmark
+    public ExcelPrinter add() throws IOException {
+        ExcelPrinter p = printer();
+        p.add(data, "Results");
+        return p;
+    }
+
+    @Benchmark
+    public long addAndWrite() throws IOException {
+        ExcelPrinter p = printer();
+        p.add(data, "Results");
+        p.write(out);
+        return out.length();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Retained heap per competitor: used heap after GC before and after loading competitors that
+// scored the given number of events, next to CompetitionService's own estimate.
+// Args: [competitors] [events per competitor ...], default 200000 0 1 5 10.
+public class Footprint {
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int[] events = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {0, 1, 5, 10};
+        for (int k : events) {
+            CompetitionService comp = new CompetitionService(new ScoringService(false), "concurrent");
+            EventRegistry r = comp.registry();
+            int scored = Math.min(k, r.eventCount(0));
+            double[][] marks = new double[scored][];
+            for (int e = 0; e < scored; e++) marks[e] = Marks.random(r, r.firstEvent(0) + e, n, e);
+            long before = usedHeap();
+            List<CompetitionService.Mark> batch = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                String name = "Competitor " + i;
+                comp.addCompetitor(name);
+                for (int e = 0; e < scored; e++) batch.add(new CompetitionService.Mark(name, r.firstEvent(0) + e, marks[e][i]));
+                if (batch.size() >= 10_000) {
+                    comp.scoreBatch(batch);
+                    batch.clear();
+                }
+            }
+            comp.scoreBatch(batch);
+            batch = null;
+            long used = usedHeap() - before;
+            System.out.printf("%d competitors, %d events each: %.0f bytes/competitor measured, %.0f estimated%n",
+                    n, k, used / (double) n, comp.stats().estimatedBytes() / (double) n);
+            if (comp.count() != n) throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
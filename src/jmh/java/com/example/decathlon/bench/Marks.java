@@ -0,0 +1,20 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.core.EventRegistry;
+
+import java.util.SplittableRandom;
+
+// Valid marks at recording resolution (hundredths), spread over each event's limits.
+final class Marks {
+    private Marks() {}
+
+    static double[] random(EventRegistry r, int event, int n, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        double lo = r.min(event), hi = r.max(event);
+        double[] marks = new double[n];
+        for (int i = 0; i < n; i++) {
+            marks[i] = Math.round((lo + rnd.nextDouble() * (hi - lo)) * 100) / 100.0;
+        }
+        return marks;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.core.ScoringService.EventDef;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rescoring a whole competition, every competitor scored in every event, back and forth between
+// version 1 and a version 2 with every A 5% higher. The rescore runs on the common fork-join pool;
+// compare pool sizes with e.g. -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=1.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class RescoreBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int competitors;
+
+    @Param({"DEC", "HEP"})
+    public String mode;
+
+    private CompetitionService comp;
+    private int version = 1;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ScoringService scoring = new ScoringService(false);
+        List<EventRegistry.ModeDef> v2 = new ArrayList<>();
+        for (EventRegistry.ModeDef m : ScoringService.MODES) {
+            List<EventDef> events = new ArrayList<>();
+            for (EventDef e : m.events()) {
+                events.add(new EventDef(e.id(), e.type(), e.A() * 1.05, e.B(), e.C(), e.unit(), e.min(), e.max()));
+            }
+            v2.add(new EventRegistry.ModeDef(m.id(), events));
+        }
+        scoring.define(2, v2);
+        comp = new CompetitionService(scoring, "concurrent");
+        EventRegistry r = comp.registry();
+        int m = r.mode(mode);
+        for (int ev = r.firstEvent(m); ev < r.firstEvent(m) + r.eventCount(m); ev++) {
+            double[] marks = Marks.random(r, ev, competitors, ev);
+            List<CompetitionService.Mark> batch = new ArrayList<>(competitors);
+            for (int i = 0; i < competitors; i++) batch.add(new CompetitionService.Mark("Competitor " + i, ev, marks[i]));
+            comp.scoreBatch(batch);
+        }
+    }
+
+    @Benchmark
+    public CompetitionService.Rescore rescore() {
+        version = 3 - version;
+        return comp.rescore(version);
+    }
+}
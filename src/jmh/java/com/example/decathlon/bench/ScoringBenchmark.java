@@ -0,0 +1,100 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScoringBenchmark {
+    private static final int MARKS = 4096;
+
+    @Param({"DEC", "HEP"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean tables;
+
+    private ScoringService scoring;
+    private String[] eventIds;
+    private int[] events;
+    private double[] marks;
+    // The same marks grouped by event, for bulk scoring
+    private int[] bulkEvents;
+    private double[][] bulkMarks;
+
+    @Setup
+    public void setup() {
+        scoring = new ScoringService(tables);
+        EventRegistry r = scoring.registry();
+        int m = r.mode(mode);
+        eventIds = new String[MARKS];
+        events = new int[MARKS];
+        marks = new double[MARKS];
+        for (int i = 0; i < MARKS; i++) {
+            int ev = r.firstEvent(m) + i % r.eventCount(m);
+            events[i] = ev;
+            eventIds[i] = r.eventId(ev);
+            marks[i] = Marks.random(r, ev, 1, i)[0];
+        }
+        bulkEvents = new int[r.eventCount(m)];
+        bulkMarks = new double[bulkEvents.length][];
+        for (int e = 0; e < bulkEvents.length; e++) {
+            bulkEvents[e] = r.firstEvent(m) + e;
+            int n = 0;
+            for (int ev : events) if (ev == bulkEvents[e]) n++;
+            bulkMarks[e] = new double[n];
+            for (int i = 0, k = 0; i < MARKS; i++) if (events[i] == bulkEvents[e]) bulkMarks[e][k++] = marks[i];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+        int next() { return i = (i + 1) & (MARKS - 1); }
+    }
+
+    @Benchmark
+    public int scoreByName(Cursor c) {
+        int i = c.next();
+        return scoring.score(mode, eventIds[i], marks[i]);
+    }
+
+    @Benchmark
+    public int scoreByOrdinal(Cursor c) {
+        int i = c.next();
+        return scoring.score(events[i], marks[i]);
+    }
+
+    // All MARKS marks, one event at a time; results are per mark
+    @Benchmark
+    @OperationsPerInvocation(MARKS)
+    public int perMark() {
+        int sum = 0;
+        for (int e = 0; e < bulkEvents.length; e++) {
+            for (double raw : bulkMarks[e]) sum += scoring.score(bulkEvents[e], raw);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MARKS)
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Ddecathlon.scoring.scalar=true"})
+    public void bulkScalar(Blackhole bh) {
+        for (int e = 0; e < bulkEvents.length; e++) bh.consume(scoring.scoreBulk(bulkEvents[e], bulkMarks[e]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MARKS)
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public void bulkVector(Blackhole bh) {
+        for (int e = 0; e < bulkEvents.length; e++) bh.consume(scoring.scoreBulk(bulkEvents[e], bulkMarks[e]));
+    }
+}
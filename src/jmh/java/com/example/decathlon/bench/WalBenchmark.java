@@ -0,0 +1,52 @@
+package com.example.decathlon.bench;
+
+import com.example.decathlon.persist.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Durable writes per second: each op appends one score record and waits for its fsync.
+// Run with -t 1,16,64.. to see group commit share fsyncs between concurrent writers.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalBenchmark {
+    @Param({"0", "1000", "5000"})
+    public long groupCommitMicros;
+
+    @Param({"512"})
+    public int groupCommitRecords;
+
+    private Path dir;
+    private WriteAheadLog log;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("wal-bench");
+        log = WriteAheadLog.open(dir.resolve("bench.wal"), groupCommitMicros, groupCommitRecords, new WriteAheadLog.Replay() {
+            public void add(String name, int id) { }
+            public void score(String name, String mode, String event, double raw) { }
+            public void tables(int version) { }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        Files.deleteIfExists(dir.resolve("bench.wal"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long durableScore() {
+        long lsn = log.appendScore("Competitor 42", "DEC", "100m", 10.23);
+        log.awaitDurable(lsn);
+        return lsn;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.decathlon.loadgen;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency histogram in microseconds with 32 linear buckets per power of two (about 3% error),
+// recordable from any number of threads without locking.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB);
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(Math.max(0, micros)));
+    }
+
+    // Adds every recording of other to this one
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) counts.addAndGet(i, other.counts.get(i));
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    // Upper bound of the bucket holding the p-th percentile (0 < p <= 100); 0 when empty
+    public long percentile(double p) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(n * p / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upper(i);
+        }
+        return upper(counts.length() - 1);
+    }
+
+    public long max() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) return upper(i);
+        }
+        return 0;
+    }
+
+    private static int index(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return (e - SUB_BITS + 1) * SUB + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    private static long upper(int index) {
+        if (index < SUB) return index;
+        int shift = index / SUB - 1;
+        return ((long) (SUB + index % SUB) << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.decathlon.loadgen;
+
+import com.example.decathlon.Application;
+import com.example.decathlon.loadgen.RequestLog.Request;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives the API with a synthesized meet (MeetSynthesizer) or a recorded request log
+// (RequestLog) and prints throughput and latency percentiles per kind of request.
+//
+// Requests are sent open-loop at their scheduled offsets, each on its own virtual thread, and
+// latency is measured from the scheduled time, so a slow server is not hidden by the generator
+// waiting for it. GETs revalidate with the last ETag seen for their path, as scoreboards do;
+// 304 counts as success. Without --url a local instance is started in-process on a free port,
+// without per-client rate limits; -D system properties configure it (e.g.
+// -Ddecathlon.wal.enabled=true).
+//
+// Args (all optional):
+//   --url http://host:port   target instead of a local instance
+//   --replay file            replay a request log instead of synthesizing a meet
+//   --record file            write the synthesized schedule as a request log
+//   --speed 1                time compression for the schedule, e.g. 10 runs it 10x faster
+//   --mode DEC|HEP --competitors 500 --judges 8 --boards 20 --poll-s 1 --export-s 30
+//   --seconds 300 --seed 1 --competition id (scores into /api/competitions/id)
+public class LoadGenerator {
+    private static final String[] KINDS = {"register", "score", "standings", "export", "other"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) throw new IllegalArgumentException("Expected --name value pairs");
+            opt.put(args[i].substring(2), args[i + 1]);
+        }
+        List<Request> schedule;
+        if (opt.containsKey("replay")) {
+            schedule = RequestLog.read(Path.of(opt.get("replay")));
+        } else {
+            schedule = MeetSynthesizer.synthesize(new MeetSynthesizer.Meet(
+                    opt.get("competition"),
+                    opt.getOrDefault("mode", "DEC"),
+                    Integer.parseInt(opt.getOrDefault("competitors", "500")),
+                    Integer.parseInt(opt.getOrDefault("judges", "8")),
+                    Integer.parseInt(opt.getOrDefault("boards", "20")),
+                    Double.parseDouble(opt.getOrDefault("poll-s", "1")),
+                    Double.parseDouble(opt.getOrDefault("export-s", "30")),
+                    Integer.parseInt(opt.getOrDefault("seconds", "300")),
+                    Long.parseLong(opt.getOrDefault("seed", "1"))));
+            if (opt.containsKey("record")) RequestLog.write(Path.of(opt.get("record")), schedule);
+        }
+        double speed = Double.parseDouble(opt.getOrDefault("speed", "1"));
+
+        ConfigurableApplicationContext ctx = null;
+        String url = opt.get("url");
+        if (url == null) {
+            ctx = new SpringApplicationBuilder(Application.class)
+                    .properties("server.port=0",
+                            "server.tomcat.max-connections=20000",
+                            "server.tomcat.accept-count=1000",
+                            // Every simulated client shares one address, so only the concurrency limit applies
+                            "decathlon.admission.client-rate=0",
+                            "logging.level.root=WARN")
+                    .run();
+            url = "http://localhost:" + ((WebServerApplicationContext) ctx).getWebServer().getPort();
+        }
+        try {
+            run(url, schedule, speed);
+        } finally {
+            if (ctx != null) ctx.close();
+        }
+    }
+
+    private static final class Kind {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    static void run(String url, List<Request> schedule, double speed) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        Kind[] kinds = new Kind[KINDS.length];
+        for (int k = 0; k < kinds.length; k++) kinds[k] = new Kind();
+        Map<String, String> etags = new ConcurrentHashMap<>();
+        // -1 for requests that got no response
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(schedule.size());
+        AtomicLong maxLag = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (Request r : schedule) {
+            long due = start + (long) (r.atMicros() * 1000 / speed);
+            for (long wait; (wait = due - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+            // How far the generator itself fell behind the schedule
+            maxLag.accumulateAndGet(System.nanoTime() - due, Math::max);
+            Thread.ofVirtual().start(() -> {
+                try {
+                    int status = send(http, url, r, due, etags, kinds[kind(r)]);
+                    statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        http.close();
+
+        System.out.printf("%d requests in %.1f s, generator lag up to %.1f ms%n", schedule.size(), seconds, maxLag.get() / 1e6);
+        System.out.printf("%-10s %9s %9s %8s %9s %9s %9s %9s%n", "kind", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (int k = 0; k < kinds.length; k++) {
+            if (kinds[k].latency.count() == 0) continue;
+            print(KINDS[k], kinds[k].latency, kinds[k].errors.sum(), seconds);
+            all.add(kinds[k].latency);
+            allErrors += kinds[k].errors.sum();
+        }
+        print("all", all, allErrors, seconds);
+        StringBuilder counts = new StringBuilder("status");
+        new TreeMap<>(statuses).forEach((s, n) -> counts.append(' ').append(s).append('=').append(n.sum()));
+        System.out.println(counts);
+    }
+
+    private static void print(String kind, LatencyHistogram h, long errors, double seconds) {
+        System.out.printf("%-10s %9d %9.1f %8d %9.1f %9.1f %9.1f %9.1f%n", kind, h.count(), h.count() / seconds, errors,
+                h.percentile(50) / 1e3, h.percentile(99) / 1e3, h.percentile(99.9) / 1e3, h.max() / 1e3);
+    }
+
+    static int kind(Request r) {
+        String path = r.path();
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        if (r.method().equals("POST") && path.endsWith("/competitors")) return 0;
+        if (r.method().equals("POST") && (path.endsWith("/score") || path.endsWith("/score/batch"))) return 1;
+        if (r.method().equals("GET") && path.endsWith("/standings")) return 2;
+        if (r.method().equals("GET") && path.endsWith("/export.csv")) return 3;
+        return 4;
+    }
+
+    private static int send(HttpClient http, String url, Request r, long due, Map<String, String> etags, Kind kind) {
+        int status;
+        try {
+            HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url + r.path())).timeout(Duration.ofSeconds(60));
+            if (r.body().isEmpty()) {
+                b.method(r.method(), HttpRequest.BodyPublishers.noBody());
+            } else {
+                b.header("Content-Type", "application/json").method(r.method(), HttpRequest.BodyPublishers.ofString(r.body()));
+            }
+            String etag = r.method().equals("GET") ? etags.get(r.path()) : null;
+            if (etag != null) b.header("If-None-Match", etag);
+            HttpResponse<Void> res = http.send(b.build(), HttpResponse.BodyHandlers.discarding());
+            status = res.statusCode();
+            if (status == 200) res.headers().firstValue("ETag").ifPresent(t -> etags.put(r.path(), t));
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = -1;
+        }
+        kind.latency.record((System.nanoTime() - due) / 1000);
+        if (status < 200 || (status >= 300 && status != 304)) kind.errors.increment();
+        return status;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.decathlon.loadgen;
+
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.core.ScoringService.EventDef;
+import com.example.decathlon.loadgen.RequestLog.Request;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Request schedule of a whole DEC or HEP meet, reproducible from its seed. The first 15% of the
+// run registers everyone in check-in bursts; the rest runs the events in order, each in its own
+// time slot, with the judges posting their share of marks spread over the slot (and now and then
+// a correction). Scoreboards poll the top 20 and the results desk pulls the CSV export
+// throughout.
+public final class MeetSynthesizer {
+    public record Meet(String competition, String mode, int competitors, int judges, int boards,
+                       double pollSeconds, double exportSeconds, int seconds, long seed) {}
+
+    // Mean and standard deviation of marks in each event's unit, roughly a 7000-point decathlon
+    // and a 5800-point heptathlon field
+    private static final Map<String, double[]> MARKS = Map.ofEntries(
+            Map.entry("DEC/100m", new double[] {11.25, 0.35}),
+            Map.entry("DEC/longJump", new double[] {685, 45}),
+            Map.entry("DEC/shotPut", new double[] {13.6, 1.4}),
+            Map.entry("DEC/highJump", new double[] {195, 8}),
+            Map.entry("DEC/400m", new double[] {50.9, 1.7}),
+            Map.entry("DEC/110mHurdles", new double[] {15.1, 0.7}),
+            Map.entry("DEC/discus", new double[] {41.5, 4.5}),
+            Map.entry("DEC/poleVault", new double[] {440, 45}),
+            Map.entry("DEC/javelin", new double[] {56, 7}),
+            Map.entry("DEC/1500m", new double[] {282, 14}),
+            Map.entry("HEP/100mHurdles", new double[] {14.1, 0.6}),
+            Map.entry("HEP/highJump", new double[] {168, 7}),
+            Map.entry("HEP/shotPut", new double[] {13.0, 1.3}),
+            Map.entry("HEP/200m", new double[] {25.1, 0.8}),
+            Map.entry("HEP/longJump", new double[] {590, 35}),
+            Map.entry("HEP/javelin", new double[] {42, 6}),
+            Map.entry("HEP/800m", new double[] {138, 6}));
+
+    private static final double REGISTRATION_SHARE = 0.15;
+    private static final double CORRECTION_RATE = 0.02;
+
+    private MeetSynthesizer() {}
+
+    public static List<Request> synthesize(Meet meet) {
+        EventRegistry.ModeDef mode = ScoringService.MODES.stream().filter(m -> m.id().equals(meet.mode())).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown mode " + meet.mode()));
+        if (meet.competitors() < 1 || meet.judges() < 1 || meet.seconds() < 1) {
+            throw new IllegalArgumentException("Competitors, judges and seconds must be positive");
+        }
+        SplittableRandom rnd = new SplittableRandom(meet.seed());
+        String api = meet.competition() == null ? "/api" : "/api/competitions/" + meet.competition();
+        long end = meet.seconds() * 1_000_000L;
+        List<Request> out = new ArrayList<>();
+        if (meet.competition() != null) out.add(new Request(0, "POST", "/api/competitions", "{\"id\":\"" + meet.competition() + "\"}"));
+
+        // Check-in: bursts of 10-50 registrations a few tens of milliseconds apart
+        long registrationEnd = (long) (end * REGISTRATION_SHARE);
+        int bursts = Math.max(1, (meet.competitors() + 29) / 30);
+        for (int b = 0, next = 0; next < meet.competitors(); b++) {
+            long t = Math.min(registrationEnd, registrationEnd * b / bursts + rnd.nextLong(registrationEnd / bursts / 2 + 1));
+            int size = Math.min(meet.competitors() - next, 10 + rnd.nextInt(41));
+            for (int i = 0; i < size; i++, next++) {
+                out.add(new Request(t, "POST", api + "/competitors", "{\"name\":\"" + name(next) + "\"}"));
+                t += 20_000 + rnd.nextInt(80_000);
+            }
+        }
+
+        // Events in order; judge j enters marks for competitors j, j + judges, ...
+        List<EventDef> events = mode.events();
+        long slot = (end - registrationEnd) / events.size();
+        for (int e = 0; e < events.size(); e++) {
+            EventDef ev = events.get(e);
+            long from = registrationEnd + e * slot;
+            for (int j = 0; j < meet.judges(); j++) {
+                int share = (meet.competitors() - j + meet.judges() - 1) / meet.judges();
+                if (share <= 0) continue;
+                // Marks fill the first 90% of the slot, spaced evenly with jitter
+                long spacing = (long) (slot * 0.9) / share;
+                for (int k = 0, c = j; c < meet.competitors(); k++, c += meet.judges()) {
+                    long t = from + k * spacing + (spacing > 1 ? rnd.nextLong(spacing) : 0);
+                    out.add(score(api, t, c, meet.mode(), ev, rnd));
+                    if (rnd.nextDouble() < CORRECTION_RATE) {
+                        out.add(score(api, Math.min(from + slot - 1, t + 5_000_000 + rnd.nextLong(25_000_000)), c, meet.mode(), ev, rnd));
+                    }
+                }
+            }
+        }
+
+        // Scoreboards and the results desk run for the whole meet
+        long poll = (long) (meet.pollSeconds() * 1_000_000);
+        for (int b = 0; b < meet.boards() && poll > 0; b++) {
+            for (long t = rnd.nextLong(poll); t < end; t += poll) {
+                out.add(new Request(t, "GET", api + "/standings?mode=" + meet.mode() + "&top=20", ""));
+            }
+        }
+        long export = (long) (meet.exportSeconds() * 1_000_000);
+        for (long t = export; export > 0 && t < end; t += export) {
+            out.add(new Request(t, "GET", api + "/export.csv?mode=" + meet.mode(), ""));
+        }
+
+        out.sort(Comparator.comparingLong(Request::atMicros));
+        return out;
+    }
+
+    static String name(int i) {
+        return "Athlete " + i;
+    }
+
+    private static Request score(String api, long t, int competitor, String mode, EventDef ev, SplittableRandom rnd) {
+        String body = "{\"name\":\"" + name(competitor) + "\",\"mode\":\"" + mode + "\",\"event\":\"" + ev.id()
+                + "\",\"raw\":" + mark(mode, ev, rnd) + "}";
+        return new Request(t, "POST", api + "/score", body);
+    }
+
+    // A normally distributed mark at recording resolution (whole cm, or hundredths of a second or
+    // metre), within the event's limits
+    static double mark(String mode, EventDef ev, SplittableRandom rnd) {
+        double[] d = MARKS.get(mode + "/" + ev.id());
+        double raw = d[0] + rnd.nextGaussian() * d[1];
+        raw = ev.unit().equals("cm") ? Math.round(raw) : Math.round(raw * 100) / 100.0;
+        return Math.max(ev.min(), Math.min(ev.max(), raw));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.decathlon.loadgen;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// API traffic as a replayable log, one request per line: offset from the start of the run in
+// microseconds, method, path with query string, and body (empty for none), separated by tabs.
+// Blank lines and lines starting with # are skipped.
+public final class RequestLog {
+    public record Request(long atMicros, String method, String path, String body) {
+        public Request {
+            if (path.indexOf('\t') >= 0 || body.indexOf('\t') >= 0 || body.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Request path and body must fit on one line without tabs");
+            }
+        }
+    }
+
+    private RequestLog() {}
+
+    // Requests in time order; lines with equal offsets keep their order
+    public static List<Request> read(Path file) throws IOException {
+        List<Request> out = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNo = 0;
+            for (String line; (line = in.readLine()) != null; ) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] f = line.split("\t", 4);
+                if (f.length < 3) throw new IOException(file + ":" + lineNo + ": expected offset, method and path");
+                try {
+                    out.add(new Request(Long.parseLong(f[0]), f[1], f[2], f.length > 3 ? f[3] : ""));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        out.sort(Comparator.comparingLong(Request::atMicros));
+        return out;
+    }
+
+    public static void write(Path file, List<Request> requests) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# offset-us\tmethod\tpath\tbody\n");
+            for (Request r : requests) {
+                out.write(Long.toString(r.atMicros()));
+                out.write('\t');
+                out.write(r.method());
+                out.write('\t');
+                out.write(r.path());
+                out.write('\t');
+                out.write(r.body());
+                out.write('\n');
+            }
+        }
+    }
+}
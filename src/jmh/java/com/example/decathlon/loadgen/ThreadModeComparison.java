@@ -0,0 +1,121 @@
+package com.example.decathlon.loadgen;
+
+import com.example.decathlon.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Starts the application in-process once with platform request threads and once with virtual
+// threads, and drives each with the same closed-loop clients: every client scores (85%), polls the
+// top 20 (12%) or pulls the CSV export (3%), then thinks for a while. Prints throughput, errors and
+// latency percentiles per thread mode and client count. Clients and server share the machine.
+//
+// Args: [clients, comma separated] [seconds per run] [think ms], default 1000,5000,10000 20 100
+public class ThreadModeComparison {
+    private static final int COMPETITORS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int[] clients = Arrays.stream((args.length > 0 ? args[0] : "1000,5000,10000").split(",")).mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int thinkMs = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        System.out.printf("%-9s %7s %10s %8s %9s %9s %9s %9s%n", "threads", "clients", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (boolean virtual : new boolean[] {false, true}) {
+            ConfigurableApplicationContext ctx = new SpringApplicationBuilder(Application.class)
+                    .properties("server.port=0",
+                            "spring.threads.virtual.enabled=" + virtual,
+                            // Enough connections for every client, so only the threading model differs
+                            "server.tomcat.max-connections=20000",
+                            "server.tomcat.accept-count=1000",
+                            // Nothing is shed, so both modes serve the same load
+                            "decathlon.admission.enabled=false",
+                            "logging.level.root=WARN")
+                    .run();
+            try {
+                int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+                for (int n : clients) run(virtual ? "virtual" : "platform", "http://localhost:" + port + "/api", n, seconds, thinkMs);
+            } finally {
+                ctx.close();
+            }
+        }
+    }
+
+    private static void run(String mode, String base, int clients, int seconds, int thinkMs) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        // Half of the run warms up; only the second half is recorded
+        long start = System.nanoTime();
+        long recordFrom = start + Duration.ofSeconds(seconds).toNanos() / 2;
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            threads.add(Thread.ofVirtual().start(() -> client(http, base, new SplittableRandom(seed), thinkMs, recordFrom, end, latency, errors)));
+        }
+        for (Thread t : threads) t.join();
+        double window = (end - recordFrom) / 1e9;
+        System.out.printf("%-9s %7d %10.0f %8d %9.1f %9.1f %9.1f %9.1f%n", mode, clients, latency.count() / window, errors.sum(),
+                latency.percentile(50) / 1e3, latency.percentile(99) / 1e3, latency.percentile(99.9) / 1e3, latency.max() / 1e3);
+        http.close();
+    }
+
+    private static void client(HttpClient http, String base, SplittableRandom rnd, int thinkMs,
+                               long recordFrom, long end, LatencyHistogram latency, LongAdder errors) {
+        try {
+            Thread.sleep(rnd.nextInt(Math.max(1, thinkMs)));
+            while (System.nanoTime() < end) {
+                int dice = rnd.nextInt(100);
+                long t0 = System.nanoTime();
+                int status;
+                try {
+                    if (dice < 85) {
+                        // Scoring by name registers the competitor on first use
+                        String body = "{\"name\":\"Load " + rnd.nextInt(COMPETITORS) + "\",\"event\":\"100m\",\"raw\":" + (10 + rnd.nextInt(300) / 100.0) + "}";
+                        status = post(http, base + "/score", body).statusCode();
+                    } else if (dice < 97) {
+                        status = get(http, base + "/standings?top=20").statusCode();
+                    } else {
+                        status = get(http, base + "/export.csv").statusCode();
+                    }
+                } catch (IOException e) {
+                    status = -1;
+                }
+                long t1 = System.nanoTime();
+                if (t0 >= recordFrom && t1 <= end) {
+                    latency.record((t1 - t0) / 1000);
+                    if (status < 200 || status >= 300) errors.increment();
+                }
+                if (thinkMs > 0) Thread.sleep(thinkMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static HttpResponse<String> post(HttpClient http, String url, String json) throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return http.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> get(HttpClient http, String url) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
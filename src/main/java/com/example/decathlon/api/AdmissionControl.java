@@ -0,0 +1,127 @@
+package com.example.decathlon.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sheds load on the write, import and export routes before it reaches a competition. Each
+// client (the remote address, or the value of decathlon.admission.client-header) has a token
+// bucket of client-rate requests per second with room for client-burst at once; on top of that
+// at most ConcurrencyLimit requests run at a time, and a request turned away by that limit gives
+// its client's token back. Either way a rejected request gets 429 with Retry-After. Streaming
+// exports hold their slot until the body is written.
+@Component
+public class AdmissionControl implements HandlerInterceptor {
+    private static final String ADMITTED = AdmissionControl.class.getName() + ".admitted";
+    private static final int SWEEP_EVERY = 4096;
+
+    // Generic cell rate algorithm: the bucket is the time at which it would be full again
+    private static final class Bucket {
+        final AtomicLong fullAt = new AtomicLong();
+    }
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final long intervalNanos, burstNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger sweep = new AtomicInteger();
+    private final ConcurrencyLimit limit;
+    private final Counter clientRejected, limitRejected;
+
+    public AdmissionControl(@Value("${decathlon.admission.enabled:true}") boolean enabled,
+                            @Value("${decathlon.admission.client-rate:50}") double clientRate,
+                            @Value("${decathlon.admission.client-burst:100}") int clientBurst,
+                            @Value("${decathlon.admission.client-header:}") String clientHeader,
+                            @Value("${decathlon.admission.initial-limit:64}") int initialLimit,
+                            @Value("${decathlon.admission.min-limit:8}") int minLimit,
+                            @Value("${decathlon.admission.max-limit:1000}") int maxLimit,
+                            MeterRegistry meters) {
+        this.enabled = enabled;
+        this.clientHeader = clientHeader.isBlank() ? null : clientHeader;
+        // A rate of 0 turns the per-client buckets off
+        this.intervalNanos = clientRate > 0 ? (long) (1e9 / clientRate) : 0;
+        this.burstNanos = intervalNanos * Math.max(1, clientBurst);
+        this.limit = new ConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        clientRejected = Counter.builder("decathlon.admission.rejected").tag("reason", "client-rate").register(meters);
+        limitRejected = Counter.builder("decathlon.admission.rejected").tag("reason", "concurrency").register(meters);
+        Gauge.builder("decathlon.admission.limit", limit, ConcurrencyLimit::limit).register(meters);
+        Gauge.builder("decathlon.admission.in-flight", limit, ConcurrencyLimit::inFlight).register(meters);
+    }
+
+    public boolean enabled() { return enabled; }
+
+    @Override
+    public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) throws IOException {
+        // Async requests come through again when the body completes; they are already admitted
+        if (req.getAttribute(ADMITTED) != null) return true;
+        long now = System.nanoTime();
+        Bucket bucket = null;
+        if (intervalNanos > 0) {
+            bucket = bucket(client(req), now);
+            long wait = take(bucket, now);
+            if (wait > 0) {
+                clientRejected.increment();
+                return reject(res, wait);
+            }
+        }
+        if (!limit.tryAcquire()) {
+            // The request never ran, so it does not count against its client's rate
+            if (bucket != null) bucket.fullAt.addAndGet(-intervalNanos);
+            limitRejected.increment();
+            return reject(res, 1_000_000_000);
+        }
+        req.setAttribute(ADMITTED, now);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest req, HttpServletResponse res, Object handler, Exception ex) {
+        Long admitted = (Long) req.getAttribute(ADMITTED);
+        if (admitted == null) return;
+        req.removeAttribute(ADMITTED);
+        limit.release(System.nanoTime() - admitted);
+    }
+
+    private String client(HttpServletRequest req) {
+        String id = clientHeader == null ? null : req.getHeader(clientHeader);
+        return id == null || id.isEmpty() ? req.getRemoteAddr() : id;
+    }
+
+    private Bucket bucket(String client, long now) {
+        if (sweep.incrementAndGet() % SWEEP_EVERY == 0) {
+            // A bucket that has refilled is the same as none; a client racing with its removal
+            // just starts from a full bucket
+            buckets.values().removeIf(b -> b.fullAt.get() <= now);
+        }
+        return buckets.computeIfAbsent(client, k -> new Bucket());
+    }
+
+    // 0 when a token was taken, otherwise nanoseconds until one is free
+    private long take(Bucket b, long now) {
+        while (true) {
+            long fullAt = b.fullAt.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            if (next - now > burstNanos) return next - now - burstNanos;
+            if (b.fullAt.compareAndSet(fullAt, next)) return 0;
+        }
+    }
+
+    private static boolean reject(HttpServletResponse res, long waitNanos) throws IOException {
+        res.setStatus(429);
+        res.setHeader("Retry-After", Long.toString(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000)));
+        res.setContentType("text/plain;charset=UTF-8");
+        res.getWriter().write("Too many requests");
+        return false;
+    }
+}
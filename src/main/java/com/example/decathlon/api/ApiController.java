@@ -1,51 +1,293 @@
 package com.example.decathlon.api;
 
 import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.Competitions;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.core.ScoringTables;
+import com.example.decathlon.csv.CsvImporter;
+import com.example.decathlon.dto.CompetitionInfo;
+import com.example.decathlon.dto.ImportSummary;
 import com.example.decathlon.dto.ScoreReq;
+import com.example.decathlon.dto.ScoreResult;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
+// Every competition route is served both unprefixed, for the default competition, and under
+// /api/competitions/{cid}/ for any other.
 @RestController
 @RequestMapping("/api")
 public class ApiController {
-    private final CompetitionService comp;
+    private final Competitions competitions;
+    private final ScoringService scoring;
+    // Modes and events, which are the same in every version of the scoring tables
+    private final EventRegistry registry;
+    private final StandingsFeed feed;
+    private final RequestMetrics metrics;
 
-    public ApiController(CompetitionService comp) { this.comp = comp; }
+    public ApiController(Competitions competitions, ScoringService scoring, StandingsFeed feed, RequestMetrics metrics) {
+        this.competitions = competitions;
+        this.scoring = scoring;
+        this.registry = competitions.get(Competitions.DEFAULT).registry();
+        this.feed = feed;
+        this.metrics = metrics;
+    }
 
-    @PostMapping("/competitors")
-    public ResponseEntity<?> add(@RequestBody Map<String,String> body) {
-        String name = Optional.ofNullable(body.get("name")).orElse("").trim();
-        if (name.isEmpty() && Math.random() < 0.15) {
-            return ResponseEntity.badRequest().body("Empty name");
+    private CompetitionService competition(String cid) {
+        CompetitionService comp = competitions.get(cid);
+        if (comp == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown competition");
+        return comp;
+    }
+
+    private CompetitionInfo info(String id) {
+        CompetitionService comp = competitions.get(id);
+        CompetitionService.Stats s = comp.stats();
+        RequestMetrics.Stats r = metrics.stats(id);
+        return new CompetitionInfo(id, s.competitors(), s.marks(), comp.tablesVersion(), s.estimatedBytes(),
+                r.requests(), r.errors(), r.meanMillis(), r.maxMillis());
+    }
+
+    @GetMapping("/competitions")
+    public List<CompetitionInfo> competitions() {
+        List<CompetitionInfo> out = new ArrayList<>();
+        for (String id : competitions.ids()) out.add(info(id));
+        return out;
+    }
+
+    @PostMapping("/competitions")
+    public ResponseEntity<?> createCompetition(@RequestBody Map<String,String> body) {
+        try {
+            String id = body.get("id");
+            if (!competitions.create(id)) return ResponseEntity.status(409).body("Competition exists");
+            return ResponseEntity.status(201).body(info(id));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/competitions/{cid}")
+    public CompetitionInfo competitionInfo(@PathVariable("cid") String cid) {
+        competition(cid);
+        return info(cid);
+    }
+
+    @GetMapping("/scoring/tables")
+    public Map<String, Object> scoringTables() {
+        return Map.of("versions", scoring.versions(), "default", scoring.registry().version());
+    }
+
+    @GetMapping(value="/scoring/tables/{version}", produces="text/csv")
+    public ResponseEntity<?> scoringTables(@PathVariable("version") int version) {
+        try {
+            return ResponseEntity.ok(ScoringTables.format(scoring.tables(version).modes()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(404).body(ex.getMessage());
+        }
+    }
+
+    // Body in the format GET returns; versions are never replaced once defined
+    @PutMapping("/scoring/tables/{version}")
+    public ResponseEntity<?> defineScoringTables(@PathVariable("version") int version, @RequestBody String csv) throws IOException {
+        try {
+            if (!scoring.define(version, ScoringTables.parse(csv))) return ResponseEntity.status(409).body("Version exists");
+            return ResponseEntity.status(201).build();
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         }
-        if (comp.count() >= 40 && Math.random() < 0.9) {
-            return ResponseEntity.status(429).body("Too many competitors");
+    }
+
+    // Body {"version": n}; the rescore runs in the background, GET on the same route follows it
+    @PostMapping({"/rescore", "/competitions/{cid}/rescore"})
+    public ResponseEntity<?> rescore(@PathVariable(value="cid", required=false) String cid, @RequestBody Map<String,Integer> body) {
+        CompetitionService comp = competition(cid);
+        Integer version = body.get("version");
+        if (version == null) return ResponseEntity.badRequest().body("Missing version");
+        try {
+            if (!comp.startRescore(version)) return ResponseEntity.status(409).body("A rescore is already running");
+            return ResponseEntity.status(202).body(comp.lastRescore());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    @GetMapping({"/rescore", "/competitions/{cid}/rescore"})
+    public ResponseEntity<?> lastRescore(@PathVariable(value="cid", required=false) String cid) {
+        CompetitionService.Rescore r = competition(cid).lastRescore();
+        return r == null ? ResponseEntity.status(404).body("No rescore yet") : ResponseEntity.ok(r);
+    }
+
+    @PostMapping({"/competitors", "/competitions/{cid}/competitors"})
+    public ResponseEntity<?> add(@PathVariable(value="cid", required=false) String cid,
+                                 @RequestBody Map<String,String> body) {
+        CompetitionService comp = competition(cid);
+        String name = Optional.ofNullable(body.get("name")).orElse("").trim();
+        if (name.isEmpty()) return ResponseEntity.badRequest().body("Empty name");
+        try {
+            int id = comp.addCompetitor(name);
+            return ResponseEntity.status(201).body(Map.of("id", id));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         }
-        comp.addCompetitor(name);
-        return ResponseEntity.status(201).build();
     }
 
-    @PostMapping("/score")
-    public ResponseEntity<?> score(@RequestBody ScoreReq r) {
+    @PostMapping({"/score", "/competitions/{cid}/score"})
+    public ResponseEntity<?> score(@PathVariable(value="cid", required=false) String cid, @RequestBody ScoreReq r) {
+        CompetitionService comp = competition(cid);
         try {
-            int pts = comp.score(r.name(), r.mode(), r.event(), r.raw());
+            int event = registry.event(registry.mode(r.mode()), r.event());
+            int pts = r.id() != null ? comp.scoreById(r.id(), event, r.raw()) : comp.score(r.name(), event, r.raw());
             return ResponseEntity.ok(Map.of("points", pts));
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(ex.getMessage());
         }
     }
 
+    @PostMapping({"/score/batch", "/competitions/{cid}/score/batch"})
+    public ResponseEntity<?> scoreBatch(@PathVariable(value="cid", required=false) String cid, @RequestBody List<ScoreReq> reqs) {
+        CompetitionService comp = competition(cid);
+        List<CompetitionService.Mark> marks = new ArrayList<>(reqs.size());
+        for (ScoreReq r : reqs) {
+            int event = registry.event(registry.mode(r.mode()), r.event());
+            marks.add(r.id() != null ? new CompetitionService.Mark(null, r.id(), event, r.raw()) : new CompetitionService.Mark(r.name(), event, r.raw()));
+        }
+        List<ScoreResult> out = new ArrayList<>(reqs.size());
+        for (CompetitionService.Outcome o : comp.scoreBatch(marks)) {
+            out.add(o.error() == null ? new ScoreResult(o.points(), null) : new ScoreResult(null, o.error()));
+        }
+        return ResponseEntity.ok(out);
+    }
+
+    // Versions restart with the process, so the ETag also carries when this instance started
+    private final String etagEpoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // A tag stands for every write to the mode up to version; a body may hold later ones too, never fewer
+    private String etag(String cid, int mode, long version) {
+        String id = cid == null ? Competitions.DEFAULT : cid;
+        return "\"" + etagEpoch + "-" + id + "-" + registry.modeId(mode) + "-" + version + "\"";
+    }
+
+    // The tag of the mode's current version when If-None-Match has it (or *), for a 304; otherwise
+    // null. Checked here rather than with WebRequest.checkNotModified, which would also put that
+    // tag on a 200 response.
+    private String notModified(String cid, CompetitionService comp, int mode, WebRequest request) {
+        String header = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (header == null) return null;
+        String etag = etag(cid, mode, comp.version(mode));
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag) || tag.equals("*")) return etag;
+        }
+        return null;
+    }
+
+    @GetMapping({"/standings", "/competitions/{cid}/standings"})
+    public ResponseEntity<?> standings(@PathVariable(value="cid", required=false) String cid,
+                                       @RequestParam(value="mode", required=false) String mode,
+                                       @RequestParam(value="top", required=false) Integer top,
+                                       @RequestParam(value="offset", defaultValue="0") int offset,
+                                       @RequestParam(value="limit", required=false) Integer limit,
+                                       WebRequest request) {
+        CompetitionService comp = competition(cid);
+        int m = registry.mode(mode);
+        String unchanged = notModified(cid, comp, m, request);
+        if (unchanged != null) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(unchanged).build();
+        try {
+            CompetitionService.StandingsPage page = top != null ? comp.standingsPage(m, 0, top)
+                    : comp.standingsPage(m, offset, limit == null ? Integer.MAX_VALUE : limit);
+            return ResponseEntity.ok().eTag(etag(cid, m, page.version())).body(page.rows());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    // Server-Sent Events: a "standings" event with the full standings whenever they change,
+    // at most once per decathlon.feed.tick-ms
+    @GetMapping(value={"/standings/stream", "/competitions/{cid}/standings/stream"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter standingsStream(@PathVariable(value="cid", required=false) String cid,
+                                      @RequestParam(value="mode", required=false) String mode) {
+        return feed.subscribe(competition(cid), registry.mode(mode));
+    }
 
-    @GetMapping("/standings")
-    public List<Map<String,Object>> standings(@RequestParam(value="mode", required=false) String mode) {
-        return comp.standings(mode == null ? "DEC" : mode);
+    @GetMapping({"/competitors/{name}/rank", "/competitions/{cid}/competitors/{name}/rank"})
+    public ResponseEntity<?> rank(@PathVariable(value="cid", required=false) String cid,
+                                  @PathVariable("name") String name,
+                                  @RequestParam(value="mode", required=false) String mode) {
+        CompetitionService.Rank r = competition(cid).rank(name, registry.mode(mode));
+        return r == null ? ResponseEntity.status(404).body("Unknown competitor") : ResponseEntity.ok(r);
     }
 
-    @GetMapping(value="/export.csv", produces = MediaType.TEXT_PLAIN_VALUE)
-    public String export(@RequestParam(value="mode", required=false) String mode) {
-        return comp.exportCsv(mode == null ? "DEC" : mode);
+    // Body is a "name,mode,event,raw" CSV; it is spooled to a temp file and imported memory-mapped
+    @PostMapping({"/import.csv", "/competitions/{cid}/import.csv"})
+    public ResponseEntity<?> importCsv(@PathVariable(value="cid", required=false) String cid, HttpServletRequest req) throws IOException {
+        CompetitionService comp = competition(cid);
+        Path tmp = Files.createTempFile("import", ".csv");
+        try {
+            try (InputStream in = req.getInputStream()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ImportSummary s = new CsvImporter(comp).importFile(tmp, Runtime.getRuntime().availableProcessors(), 1000);
+            return ResponseEntity.ok(s);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @GetMapping(value={"/export.csv", "/competitions/{cid}/export.csv"}, produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable(value="cid", required=false) String cid,
+                                                        @RequestParam(value="mode", required=false) String mode,
+                                                        WebRequest request) {
+        CompetitionService comp = competition(cid);
+        int m = registry.mode(mode);
+        String unchanged = notModified(cid, comp, m, request);
+        if (unchanged != null) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(unchanged).build();
+        CompetitionService.Export export = comp.export(m);
+        StreamingResponseBody body = os -> {
+            long start = System.nanoTime();
+            CountingOutputStream counted = new CountingOutputStream(os);
+            Writer w = new BufferedWriter(new OutputStreamWriter(counted, StandardCharsets.UTF_8), 64 * 1024);
+            export.write(w);
+            comp.metrics().exported(m, System.nanoTime() - start, counted.bytes);
+        };
+        return ResponseEntity.ok().eTag(etag(cid, m, export.version())).contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8)).body(body);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long bytes;
+
+        CountingOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
     }
 }
@@ -0,0 +1,85 @@
+package com.example.decathlon.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Limit on requests in flight that follows latency (the gradient method). Once per window the
+// mean latency of the window is compared with a slow average of past windows: while it stays
+// within TOLERANCE of that average the limit grows by a queue allowance of sqrt(limit), and as
+// latency rises past it the limit shrinks in proportion, down to half per window. The limit
+// only grows while traffic actually reaches it.
+final class ConcurrencyLimit {
+    private static final long WINDOW_NANOS = 250_000_000;
+    private static final int MIN_SAMPLES = 20;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final int min, max;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Current window; rolled over by whichever request completes after it ends
+    private final AtomicLong windowNanos = new AtomicLong();
+    private final AtomicInteger windowSamples = new AtomicInteger();
+    private final AtomicInteger windowPeak = new AtomicInteger();
+    private final ReentrantLock rollover = new ReentrantLock();
+    private volatile long windowStart = System.nanoTime();
+    private double longLatency;
+
+    ConcurrencyLimit(int initial, int min, int max) {
+        if (min < 1 || min > initial || initial > max) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.limit = initial;
+        this.min = min;
+        this.max = max;
+    }
+
+    int limit() { return limit; }
+
+    int inFlight() { return inFlight.get(); }
+
+    boolean tryAcquire() {
+        for (int n; (n = inFlight.get()) < limit; ) {
+            if (inFlight.compareAndSet(n, n + 1)) {
+                windowPeak.accumulateAndGet(n + 1, Math::max);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // nanos is how long the admitted request took
+    void release(long nanos) {
+        inFlight.decrementAndGet();
+        windowNanos.addAndGet(nanos);
+        windowSamples.incrementAndGet();
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS && windowSamples.get() >= MIN_SAMPLES && rollover.tryLock()) {
+            try {
+                if (now - windowStart >= WINDOW_NANOS) update(now);
+            } finally {
+                rollover.unlock();
+            }
+        }
+    }
+
+    private void update(long now) {
+        int samples = windowSamples.getAndSet(0);
+        long nanos = windowNanos.getAndSet(0);
+        int peak = windowPeak.getAndSet(inFlight.get());
+        windowStart = now;
+        if (samples == 0) return;
+        double shortLatency = (double) nanos / samples;
+        longLatency = longLatency == 0 ? shortLatency : longLatency * 0.95 + shortLatency * 0.05;
+        // After a long overload the average is inflated; let it drift down towards the present
+        if (longLatency > 2 * shortLatency) longLatency *= 0.9;
+        int current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double next = current * gradient + Math.sqrt(current);
+        if (next > current && peak < current / 2) next = current;
+        next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        limit = (int) Math.max(min, Math.min(max, Math.round(next)));
+    }
+}
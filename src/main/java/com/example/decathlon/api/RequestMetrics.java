@@ -0,0 +1,67 @@
+package com.example.decathlon.api;
+
+import com.example.decathlon.core.Competitions;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Request count, errors and latency per competition, taken from the {cid} path variable
+// (unprefixed routes count for the default competition). Streaming responses are timed until
+// the body is complete; requests to unknown competitions are not recorded.
+@Component
+public class RequestMetrics implements HandlerInterceptor {
+    public record Stats(long requests, long errors, double meanMillis, double maxMillis) {}
+
+    private static final String START = RequestMetrics.class.getName() + ".start";
+
+    private static final class Counters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private final Competitions competitions;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public RequestMetrics(Competitions competitions) {
+        this.competitions = competitions;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) {
+        // Async requests come through again when the body completes; keep the first start
+        if (req.getAttribute(START) == null) req.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterCompletion(HttpServletRequest req, HttpServletResponse res, Object handler, Exception ex) {
+        Long start = (Long) req.getAttribute(START);
+        if (start == null) return;
+        long nanos = System.nanoTime() - start;
+        Map<String, String> vars = (Map<String, String>) req.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String id = vars == null ? null : vars.get("cid");
+        if (competitions.get(id) == null) return;
+        Counters c = counters.computeIfAbsent(id == null ? Competitions.DEFAULT : id, k -> new Counters());
+        c.requests.increment();
+        if (ex != null || res.getStatus() >= 400) c.errors.increment();
+        c.nanos.add(nanos);
+        c.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Stats stats(String id) {
+        Counters c = counters.get(id);
+        if (c == null) return new Stats(0, 0, 0, 0);
+        long n = c.requests.sum();
+        return new Stats(n, c.errors.sum(), n == 0 ? 0 : c.nanos.sum() / 1e6 / n, c.maxNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.decathlon.api;
+
+import com.example.decathlon.core.CompetitionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Pushes standings to Server-Sent Events subscribers. Writes only mark a mode dirty; once per
+// tick each dirty mode is rendered and serialized once, and the same payload goes to every client.
+// Each competition gets its own channel on its first subscriber.
+//
+// The ticker never writes to a client itself: it hands each subscriber the latest payload and a
+// small pool does the sending, at most one send per subscriber at a time. A client that is still
+// receiving an older payload gets only the newest one next; one stuck in a single send for longer
+// than decathlon.feed.stall-ms is dropped, and completed once that send returns.
+@Component
+public class StandingsFeed {
+    private final ObjectMapper json;
+    private final Map<CompetitionService, Channel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService sender;
+    private final long stallNanos;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Latest payload not sent yet; non-null while a send is queued or running
+        final AtomicReference<String> next = new AtomicReference<>();
+        // When the running send started, 0 when none is
+        volatile long sendingSince;
+        volatile boolean dropped;
+
+        Subscriber(SseEmitter emitter) { this.emitter = emitter; }
+    }
+
+    private static final class Channel {
+        final CompetitionService comp;
+        final List<Subscriber>[] subscribers;
+        final AtomicBoolean[] dirty;
+        final String[] payload;
+
+        @SuppressWarnings("unchecked")
+        Channel(CompetitionService comp) {
+            this.comp = comp;
+            int modes = comp.registry().modeCount();
+            subscribers = new List[modes];
+            dirty = new AtomicBoolean[modes];
+            payload = new String[modes];
+            for (int m = 0; m < modes; m++) {
+                subscribers[m] = new CopyOnWriteArrayList<>();
+                dirty[m] = new AtomicBoolean(true);
+            }
+            comp.onChange(m -> dirty[m].set(true));
+        }
+    }
+
+    public StandingsFeed(ObjectMapper json, @Value("${decathlon.feed.tick-ms:500}") long tickMs,
+                         @Value("${decathlon.feed.send-threads:4}") int sendThreads,
+                         @Value("${decathlon.feed.stall-ms:5000}") long stallMs) {
+        this.json = json;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMs);
+        AtomicInteger senders = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(Math.max(1, sendThreads), r -> {
+            Thread t = new Thread(r, "standings-feed-send-" + senders.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "standings-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(CompetitionService comp, int mode) {
+        return subscribe(comp, mode, new SseEmitter(0L));
+    }
+
+    SseEmitter subscribe(CompetitionService comp, int mode, SseEmitter emitter) {
+        Channel ch = channels.computeIfAbsent(comp, Channel::new);
+        Subscriber s = new Subscriber(emitter);
+        emitter.onCompletion(() -> ch.subscribers[mode].remove(s));
+        emitter.onTimeout(() -> ch.subscribers[mode].remove(s));
+        emitter.onError(e -> ch.subscribers[mode].remove(s));
+        ch.subscribers[mode].add(s);
+        // The first push to a new subscriber is whatever the next tick publishes
+        ch.dirty[mode].set(true);
+        return emitter;
+    }
+
+    int subscribers(CompetitionService comp, int mode) {
+        Channel ch = channels.get(comp);
+        return ch == null ? 0 : ch.subscribers[mode].size();
+    }
+
+    private void tick() {
+        for (Channel ch : channels.values()) tick(ch);
+    }
+
+    private void tick(Channel ch) {
+        for (int m = 0; m < ch.subscribers.length; m++) {
+            if (ch.subscribers[m].isEmpty() || !ch.dirty[m].getAndSet(false)) continue;
+            try {
+                ch.payload[m] = json.writeValueAsString(ch.comp.standings(m));
+            } catch (JsonProcessingException | RuntimeException e) {
+                ch.dirty[m].set(true);
+                continue;
+            }
+            long now = System.nanoTime();
+            for (Subscriber s : ch.subscribers[m]) {
+                long since = s.sendingSince;
+                if (since != 0 && now - since > stallNanos) {
+                    // Completing would wait for the stuck send; the sending thread does it
+                    s.dropped = true;
+                    ch.subscribers[m].remove(s);
+                } else if (s.next.getAndSet(ch.payload[m]) == null) {
+                    sender.execute(() -> drain(s));
+                }
+            }
+        }
+    }
+
+    // Sends the subscriber's latest payload until no newer one has arrived
+    private void drain(Subscriber s) {
+        for (String payload = s.next.get(); payload != null && !s.dropped; payload = s.next.get()) {
+            s.sendingSince = System.nanoTime();
+            try {
+                s.emitter.send(SseEmitter.event().name("standings").data(payload, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                s.dropped = true;
+                s.emitter.completeWithError(e);
+                return;
+            } finally {
+                s.sendingSince = 0;
+            }
+            if (s.next.compareAndSet(payload, null)) break;
+        }
+        if (s.dropped) s.emitter.complete();
+    }
+
+    @PreDestroy
+    public void close() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+        for (Channel ch : channels.values()) {
+            for (List<Subscriber> list : ch.subscribers) list.forEach(s -> s.emitter.complete());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.decathlon.api;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final RequestMetrics metrics;
+    private final AdmissionControl admission;
+
+    public WebConfig(RequestMetrics metrics, AdmissionControl admission) {
+        this.metrics = metrics;
+        this.admission = admission;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Live feeds stay open for as long as the client watches, which is not a latency; scoring
+        // tables belong to no competition
+        registry.addInterceptor(metrics).addPathPatterns("/api/**")
+                .excludePathPatterns("/api/competitions", "/api/standings/stream", "/api/competitions/*/standings/stream",
+                        "/api/scoring/**");
+        // After metrics, so shed requests are counted as errors of their competition. Rescores are
+        // left out: one runs at a time per competition in the background, and the route is shared
+        // with the GET that clients poll while it runs.
+        if (admission.enabled()) {
+            registry.addInterceptor(admission).addPathPatterns(
+                    "/api/competitors", "/api/competitions/*/competitors",
+                    "/api/score", "/api/score/batch", "/api/competitions/*/score", "/api/competitions/*/score/batch",
+                    "/api/import.csv", "/api/competitions/*/import.csv",
+                    "/api/export.csv", "/api/competitions/*/export.csv");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.decathlon.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+// Micrometer meters of one competition, all tagged with its id. Every meter a hot path touches is
+// created up front and indexed by ordinal, so recording is an array read and an add with no tag
+// lookup. NONE records nothing and lets callers skip taking timestamps.
+public final class CompetitionMetrics {
+    public static final CompetitionMetrics NONE = new CompetitionMetrics();
+
+    final boolean enabled;
+    private final Counter[] scores;
+    private final Timer monitorWait, monitorHold, stripeWait, stripeHold;
+    private final Timer[] standingsBuild, export;
+    private final DistributionSummary[] standingsRows, exportBytes;
+
+    private CompetitionMetrics() {
+        enabled = false;
+        scores = null;
+        monitorWait = monitorHold = stripeWait = stripeHold = null;
+        standingsBuild = export = null;
+        standingsRows = exportBytes = null;
+    }
+
+    public CompetitionMetrics(MeterRegistry meters, String competition, EventRegistry r) {
+        enabled = true;
+        scores = new Counter[r.eventCount()];
+        for (int ev = 0; ev < scores.length; ev++) {
+            scores[ev] = Counter.builder("decathlon.scores").description("Marks scored")
+                    .tags("competition", competition, "mode", r.modeId(r.modeOf(ev)), "event", r.eventId(ev))
+                    .register(meters);
+        }
+        monitorWait = lockTimer(meters, "decathlon.lock.wait", competition, "monitor");
+        monitorHold = lockTimer(meters, "decathlon.lock.hold", competition, "monitor");
+        stripeWait = lockTimer(meters, "decathlon.lock.wait", competition, "stripe");
+        stripeHold = lockTimer(meters, "decathlon.lock.hold", competition, "stripe");
+        int modes = r.modeCount();
+        standingsBuild = new Timer[modes];
+        standingsRows = new DistributionSummary[modes];
+        export = new Timer[modes];
+        exportBytes = new DistributionSummary[modes];
+        for (int m = 0; m < modes; m++) {
+            String mode = r.modeId(m);
+            standingsBuild[m] = Timer.builder("decathlon.standings.build").description("Standings snapshot rebuilds")
+                    .tags("competition", competition, "mode", mode).register(meters);
+            standingsRows[m] = DistributionSummary.builder("decathlon.standings.rows").description("Rows in a rebuilt standings snapshot")
+                    .tags("competition", competition, "mode", mode).register(meters);
+            export[m] = Timer.builder("decathlon.export").description("CSV exports, until the last byte is written")
+                    .tags("competition", competition, "mode", mode).register(meters);
+            exportBytes[m] = DistributionSummary.builder("decathlon.export.size").description("CSV export size")
+                    .baseUnit("bytes").tags("competition", competition, "mode", mode).register(meters);
+        }
+    }
+
+    private static Timer lockTimer(MeterRegistry meters, String name, String competition, String lock) {
+        return Timer.builder(name).tags("competition", competition, "lock", lock).register(meters);
+    }
+
+    void scored(int event) { if (enabled) scores[event].increment(); }
+
+    void monitorWait(long nanos) { monitorWait.record(nanos, TimeUnit.NANOSECONDS); }
+
+    void monitorHold(long nanos) { monitorHold.record(nanos, TimeUnit.NANOSECONDS); }
+
+    void stripeWait(long nanos) { stripeWait.record(nanos, TimeUnit.NANOSECONDS); }
+
+    void stripeHold(long nanos) { stripeHold.record(nanos, TimeUnit.NANOSECONDS); }
+
+    void standingsBuilt(int mode, long nanos, int rows) {
+        if (!enabled) return;
+        standingsBuild[mode].record(nanos, TimeUnit.NANOSECONDS);
+        standingsRows[mode].record(rows);
+    }
+
+    public void exported(int mode, long nanos, long bytes) {
+        if (!enabled) return;
+        export[mode].record(nanos, TimeUnit.NANOSECONDS);
+        exportBytes[mode].record(bytes);
+    }
+}
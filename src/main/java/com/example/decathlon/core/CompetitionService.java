@@ -1,78 +1,1066 @@
 package com.example.decathlon.core;
 
+import com.example.decathlon.persist.Checkpoint;
+import com.example.decathlon.persist.WalSettings;
+import com.example.decathlon.persist.WriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 @Service
 public class CompetitionService {
     private final ScoringService scoring;
+    private final CompetitionMetrics metrics;
 
-    public CompetitionService(ScoringService scoring) {
+    // decathlon.competition.concurrency=monitor serializes every call on one lock (the original
+    // behaviour); =concurrent leaves the registry lock-free and updates competitors atomically.
+    private final ReentrantLock monitor;
+
+    // Serializes updates of one competitor's points and leaderboard rows
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+    private final int modeCount;
+
+    // The scoring tables in use and the leaderboards and rank indexes built with them; rescoring
+    // replaces all three at once. Writers read it under their stripe or the registration lock,
+    // both of which rescoring holds while it swaps, so no write straddles two versions.
+    private record Generation(EventRegistry tables, Leaderboard[] leaderboards, RankIndex[] ranks) {}
+    private volatile Generation gen;
+
+    // Every registration and score is logged here before the call returns; disabled by default
+    private final WriteAheadLog log;
+    private boolean replaying;
+
+    // Checkpoints let startup skip the log written before them; only used with the log enabled
+    private final Path checkpointPath;
+    private final String[] checkpointModes;
+    private final String[][] checkpointEvents;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final ScheduledExecutorService checkpointer;
+    private volatile CheckpointStats checkpointStats = new CheckpointStats(0, 0, 0, 0, 0, 0, 0);
+
+    public CompetitionService(ScoringService scoring, String concurrency) {
+        this(scoring, concurrency, WalSettings.disabled());
+    }
+
+    public CompetitionService(ScoringService scoring, String concurrency, WalSettings wal) {
+        this(scoring, concurrency, wal, CompetitionMetrics.NONE);
+    }
+
+    // The application's bean is the default competition
+    @Autowired
+    public CompetitionService(ScoringService scoring,
+                              @Value("${decathlon.competition.concurrency:monitor}") String concurrency,
+                              WalSettings wal, MeterRegistry meters) {
+        this(scoring, concurrency, wal, new CompetitionMetrics(meters, Competitions.DEFAULT, scoring.registry()));
+    }
+
+    public CompetitionService(ScoringService scoring, String concurrency, WalSettings wal, CompetitionMetrics metrics) {
         this.scoring = scoring;
+        this.metrics = metrics;
+        this.monitor = switch (concurrency) {
+            case "monitor" -> new ReentrantLock();
+            case "concurrent" -> null;
+            default -> throw new IllegalArgumentException("Unknown concurrency mode: " + concurrency);
+        };
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        modeCount = scoring.registry().modeCount();
+        versions = new AtomicLongArray(modeCount);
+        snapshots = new AtomicReferenceArray<>(modeCount);
+        snapshotBuild = new ReentrantLock[modeCount];
+        for (int m = 0; m < modeCount; m++) {
+            snapshots.set(m, ModeSnapshot.EMPTY);
+            snapshotBuild[m] = new ReentrantLock();
+        }
+        // A log without a tables record was written with version 1, from before there were versions
+        gen = generation(wal.enabled ? scoring.tables(1) : scoring.registry());
+        EventRegistry r = scoring.registry();
+        checkpointPath = wal.checkpointPath;
+        checkpointModes = new String[r.modeCount()];
+        checkpointEvents = new String[r.modeCount()][];
+        for (int m = 0; m < checkpointModes.length; m++) {
+            checkpointModes[m] = r.modeId(m);
+            checkpointEvents[m] = new String[r.eventCount(m)];
+            for (int i = 0; i < checkpointEvents[m].length; i++) checkpointEvents[m][i] = r.eventId(r.firstEvent(m) + i);
+        }
+        this.log = wal.enabled ? recover(wal) : WriteAheadLog.disabled();
+        // A new competition starts on the default version
+        if (log.empty() && gen.tables() != scoring.registry()) {
+            gen = generation(scoring.registry());
+            log.awaitDurable(log.appendTables(gen.tables().version()));
+        }
+        if (wal.enabled && wal.checkpointIntervalSeconds > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread t = new Thread(task, "checkpoint-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            checkpointer.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    // the previous checkpoint stays valid; retried next interval
+                }
+            }, wal.checkpointIntervalSeconds, wal.checkpointIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    // Maps the latest checkpoint, if any, and replays only the log written after it
+    private WriteAheadLog recover(WalSettings wal) {
+        WriteAheadLog.Position from = new WriteAheadLog.Position(0, 0);
+        try {
+            long start = System.nanoTime();
+            Checkpoint cp = Checkpoint.load(wal.checkpointPath, checkpointModes, checkpointEvents);
+            if (cp != null && WriteAheadLog.covers(wal.path, cp.logId(), cp.position())) {
+                gen = generation(tables(cp.tables(), "Checkpoint " + wal.checkpointPath));
+                cp.forEach(this::restore);
+                for (int m = 0; m < modeCount; m++) changed(m);
+                from = cp.position();
+                checkpointStats = new CheckpointStats(from.lsn(), cp.bytes(), cp.competitors(), 0, 0, cp.competitors(), System.nanoTime() - start);
+            } else if (cp != null) {
+                // Taken from another log, or past where this one now ends: replay all of the log
+                // instead, and drop the checkpoint so it cannot match once the log grows past it
+                Files.delete(wal.checkpointPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read checkpoint " + wal.checkpointPath, e);
+        }
+        return replay(wal, from);
+    }
+
+    private EventRegistry tables(int version, String source) {
+        try {
+            return scoring.tables(version);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(source + " uses scoring tables version " + version + ", which is not defined", e);
+        }
+    }
+
+    private Generation generation(EventRegistry tables) {
+        Leaderboard[] leaderboards = new Leaderboard[modeCount];
+        RankIndex[] ranks = new RankIndex[modeCount];
+        for (int m = 0; m < modeCount; m++) {
+            leaderboards[m] = new Leaderboard();
+            ranks[m] = new RankIndex(tables.maxTotal(m));
+        }
+        return new Generation(tables, leaderboards, ranks);
+    }
+
+    private void restore(Checkpoint.Entry e) {
+        Generation g = gen;
+        EventRegistry r = g.tables();
+        Competitor c = new Competitor(e.name(), e.id(), modeCount);
+        if (competitors.putIfAbsent(c.name, c) != null) return;
+        nextSeq.accumulateAndGet(e.id() + 1, Math::max);
+        for (int m = 0; m < modeCount; m++) {
+            if (e.masks()[m] != 0) c.modes |= 1 << m;
+        }
+        for (int m = 0; m < modeCount; m++) {
+            int scored = e.masks()[m];
+            if (scored == 0) {
+                if (c.modes == 0) join(g, c, m, new Leaderboard.Standing(c));
+                continue;
+            }
+            int from = r.firstEvent(m), to = from + r.eventCount(m);
+            int[] points = Arrays.copyOfRange(e.points(), from, to);
+            int[] marks = Arrays.copyOfRange(e.marks(), from, to);
+            double[] exact = null;
+            int total = 0;
+            for (int bits = scored; bits != 0; bits &= bits - 1) {
+                int i = Integer.numberOfTrailingZeros(bits);
+                total += points[i];
+                if (marks[i] == Leaderboard.Standing.OFF_GRID && exact == null) exact = Arrays.copyOfRange(e.exact(), from, to);
+            }
+            join(g, c, m, new Leaderboard.Standing(c, total, scored, points, marks, exact));
+            arrayBytes.addAndGet(2 * (16 + 4L * points.length) + (exact == null ? 0 : 16 + 8L * exact.length));
+            this.marks.addAndGet(Integer.bitCount(scored));
+        }
+        byId.put(c.seq, c);
+    }
+
+    private static void join(Generation g, Competitor c, int mode, Leaderboard.Standing s) {
+        c.standings[mode] = s;
+        g.leaderboards()[mode].add(s);
+        g.ranks()[mode].add(s.total(), 1);
+    }
+
+    private static void leave(Generation g, Competitor c, int mode) {
+        Leaderboard.Standing s = c.standings[mode];
+        c.standings[mode] = null;
+        g.leaderboards()[mode].remove(s);
+        g.ranks()[mode].add(s.total(), -1);
+    }
+
+    private WriteAheadLog replay(WalSettings wal, WriteAheadLog.Position from) {
+        replaying = true;
+        try {
+            EventRegistry r = registry();
+            long[] none = new long[1];
+            return WriteAheadLog.open(wal.path, from, wal.groupCommitMicros, wal.groupCommitRecords, new WriteAheadLog.Replay() {
+                public void add(String name, int id) { register(name, id, none); }
+                public void score(String name, String mode, String event, double raw) {
+                    try {
+                        scoreLocked(register(name, -1, none), r.event(r.mode(mode), event), raw, none);
+                    } catch (IllegalArgumentException ignored) {
+                        // limits changed since the mark was logged
+                    }
+                }
+                public void tables(int version) { rescore(CompetitionService.this.tables(version, "Log " + wal.path)); }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open write-ahead log " + wal.path, e);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    public record CheckpointStats(long lsn, long bytes, int competitors, long writeNanos, long writes,
+                                  int restoredCompetitors, long restoreNanos) {}
+
+    public CheckpointStats checkpointStats() { return checkpointStats; }
+
+    // Writes a checkpoint of everything logged so far and returns the LSN it covers. Runs next to
+    // live writes: the LSN is read first and every write is applied before it is logged, so the copy
+    // holds at least everything up to the LSN, and replaying later records over it is harmless.
+    // The file is only written once the log is durable up to the LSN, so it never covers records
+    // a crash could still lose.
+    public long checkpoint() throws IOException {
+        if (!log.enabled()) return 0;
+        checkpointLock.lock();
+        try {
+            WriteAheadLog.Position at = log.position();
+            long lsn = at.lsn();
+            CheckpointStats last = checkpointStats;
+            if (lsn == last.lsn()) return lsn;
+            long start = System.nanoTime();
+            // Rescoring swaps generations under checkpointLock, so every row read here is of this one
+            EventRegistry r = gen.tables();
+            List<Checkpoint.Entry> entries = new ArrayList<>(competitors.size());
+            byId.forEach(nextSeq.get(), c -> {
+                int[] masks = new int[modeCount];
+                int[] points = new int[r.eventCount()];
+                int[] marks = new int[r.eventCount()];
+                double[] exact = null;
+                for (int m = 0; m < modeCount; m++) {
+                    Leaderboard.Standing s = c.standings[m];
+                    if (s == null || s.scored() == 0) continue;
+                    masks[m] = s.scored();
+                    System.arraycopy(s.points(), 0, points, r.firstEvent(m), s.points().length);
+                    System.arraycopy(s.marks(), 0, marks, r.firstEvent(m), s.marks().length);
+                    if (s.exact() != null) {
+                        if (exact == null) exact = new double[r.eventCount()];
+                        System.arraycopy(s.exact(), 0, exact, r.firstEvent(m), s.exact().length);
+                    }
+                }
+                entries.add(new Checkpoint.Entry(c.seq, c.name, masks, points, marks, exact));
+            });
+            log.awaitDurable(lsn);
+            long bytes = Checkpoint.write(checkpointPath, log.id(), at, r.version(), checkpointModes, checkpointEvents, entries);
+            checkpointStats = new CheckpointStats(lsn, bytes, entries.size(), System.nanoTime() - start, last.writes() + 1,
+                    last.restoredCompetitors(), last.restoreNanos());
+            return lsn;
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (checkpointer != null) checkpointer.shutdown();
+        try {
+            checkpoint();
+        } finally {
+            log.close();
+        }
+    }
+
+    public CompetitionMetrics metrics() { return metrics; }
+
+    // When the monitor was taken; only read and written by its holder
+    private long monitorSince;
+
+    // An uncontended acquisition records a zero wait and reads the clock once, for the hold time
+    private void lock() {
+        if (monitor == null) return;
+        if (!metrics.enabled) {
+            monitor.lock();
+            return;
+        }
+        long now;
+        if (monitor.tryLock()) {
+            metrics.monitorWait(0);
+            now = System.nanoTime();
+        } else {
+            long start = System.nanoTime();
+            monitor.lock();
+            now = System.nanoTime();
+            metrics.monitorWait(now - start);
+        }
+        if (monitor.getHoldCount() == 1) monitorSince = now;
+    }
+
+    private void unlock() {
+        if (monitor == null) return;
+        if (metrics.enabled && monitor.getHoldCount() == 1) metrics.monitorHold(System.nanoTime() - monitorSince);
+        monitor.unlock();
     }
 
+    // Points live in the competitor's current Standing of each mode it belongs to. A competitor
+    // without scores belongs to every mode; its first score moves it to that mode only, and each
+    // further mode it scores in adds that mode. modes has bit m set for every mode scored in.
     public static class Competitor {
         public final String name;
-        public final Map<String, Map<String, Integer>> pointsByMode = new ConcurrentHashMap<>();
-        public Competitor(String name) { this.name = name; }
-        public int total(String mode) {
-            return pointsByMode.getOrDefault(mode, Map.of()).values().stream().mapToInt(i -> i).sum();
+        final int seq;
+        final Leaderboard.Standing[] standings;
+        int modes;
+        Competitor(String name, int seq, int modes) {
+            this.name = name;
+            this.seq = seq;
+            this.standings = new Leaderboard.Standing[modes];
+        }
+        public int total(int mode) {
+            Leaderboard.Standing s = standings[mode];
+            return s == null ? 0 : s.total();
+        }
+    }
+
+    // Names are hashed once, at registration; id-based calls go through byId
+    private final Map<String, Competitor> competitors = new ConcurrentHashMap<>();
+    // Ids are registration seqs, so id order is registration order
+    private final CompetitorTable byId = new CompetitorTable();
+    private final AtomicInteger nextSeq = new AtomicInteger();
+
+    // Longer names are rejected on registration; the log and checkpoints store lengths in 16 bits
+    public static final int MAX_NAME_LENGTH = 400;
+
+    // Held only while adding a competitor; lookups of known names never take it
+    private final ReentrantLock registering = new ReentrantLock();
+
+    // New competitors are listed in every mode with total 0 until their first score. id is -1
+    // for the next free id; replay passes the logged one so ids survive restarts.
+    // lsn[0] is raised to the log position of anything this call appended
+    private Competitor register(String name, int id, long[] lsn) {
+        if (name == null) throw new IllegalArgumentException("Missing name");
+        Competitor c = competitors.get(name);
+        if (c != null) return c;
+        // Replay keeps whatever an older build accepted
+        if (name.length() > MAX_NAME_LENGTH && !replaying) {
+            throw new IllegalArgumentException("Name longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        // A lock rather than computeIfAbsent, whose bin lock would pin a virtual thread that
+        // blocks on the log. It also keeps ids gap-free and logged in id order.
+        registering.lock();
+        try {
+            c = competitors.get(name);
+            if (c != null) return c;
+            int seq = id;
+            if (seq < 0) seq = nextSeq.getAndIncrement();
+            else nextSeq.accumulateAndGet(id + 1, Math::max);
+            c = new Competitor(name, seq, modeCount);
+            Generation g = gen;
+            boardWritesStarted.incrementAndGet();
+            try {
+                for (int m = 0; m < modeCount; m++) join(g, c, m, new Leaderboard.Standing(c));
+            } finally {
+                boardWritesFinished.incrementAndGet();
+            }
+            byId.put(seq, c);
+            // Logged once visible, so a checkpoint taken after this LSN includes the competitor
+            if (!replaying) lsn[0] = Math.max(lsn[0], log.appendAdd(name, seq));
+            competitors.put(name, c);
+        } finally {
+            registering.unlock();
+        }
+        for (int m = 0; m < modeCount; m++) changed(m);
+        return c;
+    }
+
+    private Competitor competitor(int id) {
+        Competitor c = byId.get(id);
+        if (c == null) throw new IllegalArgumentException("Unknown competitor id " + id);
+        return c;
+    }
+
+    // Registers name if new; either way returns its id
+    public int addCompetitor(String name) {
+        long[] lsn = new long[1];
+        Competitor c;
+        lock();
+        try {
+            c = register(name, -1, lsn);
+        } finally {
+            unlock();
         }
+        log.awaitDurable(lsn[0]);
+        return c.seq;
+    }
+
+    // -1 for unknown names
+    public int id(String name) {
+        Competitor c = name == null ? null : competitors.get(name);
+        return c == null ? -1 : c.seq;
+    }
+
+    // The scoring tables the competition currently scores with
+    public EventRegistry registry() { return gen.tables(); }
+
+    private final List<IntConsumer> changeListeners = new CopyOnWriteArrayList<>();
+    // Per-mode version, bumped by every write that changes the mode's standings
+    private final AtomicLongArray versions;
+    private final AtomicReferenceArray<ModeSnapshot> snapshots;
+    private final ReentrantLock[] snapshotBuild;
+
+    public long version(int mode) { return versions.get(mode); }
+
+    // Called with the mode ordinal after each write that changes that mode's standings.
+    // Listeners run on the writing thread and must be cheap.
+    public void onChange(IntConsumer listener) { changeListeners.add(listener); }
+
+    private void changed(int mode) {
+        versions.incrementAndGet(mode);
+        for (IntConsumer l : changeListeners) l.accept(mode);
+    }
+
+    public int score(String name, String mode, String eventId, double raw) {
+        EventRegistry r = registry();
+        return score(name, r.event(r.mode(mode), eventId), raw);
     }
 
-    private final Map<String, Competitor> competitors = new LinkedHashMap<>();
+    // event is an ordinal from registry(); unknown events score 0 and are not recorded.
+    // Unknown names are registered.
+    public int score(String name, int event, double raw) {
+        long[] lsn = new long[1];
+        int pts;
+        lock();
+        try {
+            pts = scoreLocked(register(name, -1, lsn), event, raw, lsn);
+        } finally {
+            unlock();
+        }
+        log.awaitDurable(lsn[0]);
+        return pts;
+    }
 
-    public synchronized void addCompetitor(String name) {
-        competitors.computeIfAbsent(name, Competitor::new);
+    // As score(name, ...) for a competitor id from addCompetitor; unknown ids are rejected
+    public int scoreById(int id, int event, double raw) {
+        long[] lsn = new long[1];
+        int pts;
+        lock();
+        try {
+            pts = scoreLocked(competitor(id), event, raw, lsn);
+        } finally {
+            unlock();
+        }
+        log.awaitDurable(lsn[0]);
+        return pts;
     }
 
-    public synchronized int score(String name, String mode, String eventId, double raw) {
-        Competitor c = competitors.computeIfAbsent(name, Competitor::new);
-        int pts = scoring.score(mode, eventId, raw);
-        c.pointsByMode.computeIfAbsent(mode, k -> new ConcurrentHashMap<>()).put(eventId, pts);
+    private int scoreLocked(Competitor c, int event, double raw, long[] lsn) {
+        if (event == EventRegistry.UNKNOWN) return 0;
+        int pts, mode, left = 0;
+        ReentrantLock stripe = stripes[c.seq & (stripes.length - 1)];
+        long locked = lockStripe(stripe);
+        try {
+            // The stripe keeps the generation from being swapped until this write is in it
+            Generation g = gen;
+            EventRegistry r = g.tables();
+            pts = scoring.score(r, event, raw);
+            mode = r.modeOf(event);
+            int i = event - r.firstEvent(mode);
+            Leaderboard.Standing old = c.standings[mode];
+            int[] points, marks;
+            double[] exact;
+            if (old == null || old.scored() == 0) {
+                points = new int[r.eventCount(mode)];
+                marks = new int[points.length];
+                exact = null;
+                arrayBytes.addAndGet(2 * (16 + 4L * points.length));
+            } else {
+                points = old.points().clone();
+                marks = old.marks().clone();
+                exact = old.exact();
+            }
+            int total = (old == null ? 0 : old.total()) - (old != null && old.has(i) ? points[i] : 0) + pts;
+            points[i] = pts;
+            marks[i] = Leaderboard.Standing.hundredths(raw);
+            if (marks[i] == Leaderboard.Standing.OFF_GRID) {
+                if (exact == null) {
+                    exact = new double[points.length];
+                    arrayBytes.addAndGet(16 + 8L * exact.length);
+                } else {
+                    exact = exact.clone();
+                }
+                exact[i] = raw;
+            }
+            Leaderboard.Standing now = new Leaderboard.Standing(c, total, (old == null ? 0 : old.scored()) | 1 << i, points, marks, exact);
+            if (old == null || !old.has(i)) this.marks.incrementAndGet();
+            boardWritesStarted.incrementAndGet();
+            try {
+                if (old == null) {
+                    join(g, c, mode, now);
+                } else {
+                    g.leaderboards()[mode].replace(old, now);
+                    g.ranks()[mode].move(old.total(), now.total());
+                    c.standings[mode] = now;
+                }
+                if (c.modes == 0) {
+                    // First score: from now on only listed in the modes scored in
+                    for (int m = 0; m < modeCount; m++) {
+                        if (m != mode) {
+                            leave(g, c, m);
+                            left |= 1 << m;
+                        }
+                    }
+                }
+                c.modes |= 1 << mode;
+            } finally {
+                boardWritesFinished.incrementAndGet();
+            }
+            // Appended under the stripe so the log orders writes to one competitor as applied
+            if (!replaying) lsn[0] = Math.max(lsn[0], log.appendScore(c.name, r.modeId(mode), r.eventId(event), raw));
+        } finally {
+            if (metrics.enabled) metrics.stripeHold(System.nanoTime() - locked);
+            stripe.unlock();
+        }
+        if (!replaying) metrics.scored(event);
+        changed(mode);
+        for (int m = 0; m < modeCount; m++) {
+            if ((left & 1 << m) != 0) changed(m);
+        }
         return pts;
     }
 
-    public synchronized List<Map<String, Object>> standings(String mode) {
-        return competitors.values().stream()
-                .map(c -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("name", c.name);
-                    m.put("scores", new LinkedHashMap<>(c.pointsByMode.getOrDefault(mode, Map.of())));
-                    m.put("total", c.total(mode));
-                    return m;
-                })
-                .sorted(Comparator.comparingInt(m -> -((Integer) m.get("total"))))
-                .collect(Collectors.toList());
-    }
-
-    public synchronized String exportCsv(String mode) {
-        Set<String> eventIds = new LinkedHashSet<>();
-        competitors.values().forEach(c -> eventIds.addAll(c.pointsByMode.getOrDefault(mode, Map.of()).keySet()));
-        List<String> header = new ArrayList<>();
-        header.add("Name");
-        header.addAll(eventIds);
-        header.add("Total");
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.join(",", header)).append("\n");
-        for (Competitor c : competitors.values()) {
-            List<String> row = new ArrayList<>();
-            row.add(c.name);
-            int sum = 0;
-            Map<String,Integer> map = c.pointsByMode.getOrDefault(mode, Map.of());
-            for (String ev : eventIds) {
-                Integer p = map.get(ev);
-                row.add(p == null ? "" : String.valueOf(p));
-                if (p != null) sum += p;
-            }
-            row.add(String.valueOf(sum));
-            sb.append(String.join(",", row)).append("\n");
-        }
-        return sb.toString();
-    }
-
-    public synchronized int count() { return competitors.size(); }
+    // Returns when the stripe was taken, or 0 when metrics are off
+    private long lockStripe(ReentrantLock stripe) {
+        if (!metrics.enabled) {
+            stripe.lock();
+            return 0;
+        }
+        if (stripe.tryLock()) {
+            metrics.stripeWait(0);
+            return System.nanoTime();
+        }
+        long start = System.nanoTime();
+        stripe.lock();
+        long now = System.nanoTime();
+        metrics.stripeWait(now - start);
+        return now;
+    }
+
+    // A mark for a competitor named by name, or by id when name is null
+    public record Mark(String name, int id, int event, double raw) {
+        public Mark(String name, int event, double raw) { this(name, -1, event, raw); }
+    }
+    public record Outcome(int points, String error) {}
+
+    // Applies all marks under one lock acquisition; a rejected mark does not stop the rest.
+    // With the write-ahead log on, returns once the whole batch is durable.
+    public List<Outcome> scoreBatch(List<Mark> marks) {
+        List<Outcome> out = new ArrayList<>(marks.size());
+        long[] lsn = new long[1];
+        lock();
+        try {
+            for (Mark m : marks) {
+                try {
+                    Competitor c = m.name() != null ? register(m.name(), -1, lsn) : competitor(m.id());
+                    out.add(new Outcome(scoreLocked(c, m.event(), m.raw(), lsn), null));
+                } catch (IllegalArgumentException ex) {
+                    out.add(new Outcome(0, ex.getMessage()));
+                }
+            }
+        } finally {
+            unlock();
+        }
+        log.awaitDurable(lsn[0]);
+        return out;
+    }
+
+    // Rescoring moves the competition to another version of the scoring tables. Every competitor's
+    // points are recomputed from their stored marks, in parallel on the common fork-join pool, and
+    // the new rows are sorted and linked into a new generation's leaderboards, while writes go on
+    // against the current one. Competitors written to meanwhile are redone, a few rounds without
+    // locks and then once more holding every lock a write can take, and the new generation is
+    // swapped in and logged; only that last step holds writes up.
+    public record Rescore(String state, int from, int to, int competitors, long marks, int caughtUp,
+                          double millis, double pauseMillis, String error) {}
+
+    // Competitors per fork-join leaf; their marks of one event are scored as one bulk array
+    private static final int RESCORE_CHUNK = 4096;
+    // Unlocked catch-up rounds stop once a round redoes at most this many competitors
+    private static final int CATCH_UP_ROUNDS = 4, CATCH_UP_LOCKED = 256;
+
+    private final AtomicBoolean rescoring = new AtomicBoolean();
+    private volatile Rescore lastRescore;
+
+    public int tablesVersion() { return gen.tables().version(); }
+
+    // The running or last finished rescore; null before the first
+    public Rescore lastRescore() { return lastRescore; }
+
+    // Rescores in the background; false when a rescore is already running
+    public boolean startRescore(int version) {
+        EventRegistry to = scoring.tables(version);
+        if (!rescoring.compareAndSet(false, true)) return false;
+        lastRescore = new Rescore("running", tablesVersion(), version, 0, 0, 0, 0, 0, null);
+        Thread.ofPlatform().name("rescore").daemon(true).start(() -> {
+            try {
+                rescore(to);
+            } catch (RuntimeException e) {
+                // recorded in lastRescore
+            } finally {
+                rescoring.set(false);
+            }
+        });
+        return true;
+    }
+
+    // As startRescore, but returns once done. Throws IllegalArgumentException when a stored mark
+    // is outside the new version's limits; the competition then stays on its current version.
+    public Rescore rescore(int version) {
+        EventRegistry to = scoring.tables(version);
+        if (!rescoring.compareAndSet(false, true)) throw new IllegalStateException("A rescore is already running");
+        try {
+            return rescore(to);
+        } finally {
+            rescoring.set(false);
+        }
+    }
+
+    private Rescore rescore(EventRegistry to) {
+        long start = System.nanoTime();
+        int from = tablesVersion();
+        try {
+            int n = nextSeq.get();
+            // Per mode and id, the row each new one was computed from, and the new one
+            Leaderboard.Standing[][] before = new Leaderboard.Standing[modeCount][n];
+            Leaderboard.Standing[][] after = new Leaderboard.Standing[modeCount][n];
+            try {
+                ForkJoinPool.commonPool().invoke(new RescoreTask(to, before, after, 0, n));
+            } catch (IllegalArgumentException e) {
+                // Fork-join rethrows a copy of a worker's exception in the caller, with the original as cause
+                throw e.getCause() instanceof IllegalArgumentException original ? original : e;
+            }
+            Leaderboard[] leaderboards = new Leaderboard[modeCount];
+            RankIndex[] ranks = new RankIndex[modeCount];
+            for (int m = 0; m < modeCount; m++) {
+                int maxTotal = to.maxTotal(m);
+                int[] counts = new int[maxTotal + 1];
+                Leaderboard.Standing[] rows = Arrays.stream(after[m]).filter(Objects::nonNull).toArray(Leaderboard.Standing[]::new);
+                for (Leaderboard.Standing s : rows) counts[Math.max(0, Math.min(s.total(), maxTotal))]++;
+                leaderboards[m] = new Leaderboard(rows);
+                ranks[m] = new RankIndex(maxTotal, counts);
+            }
+            Generation next = new Generation(to, leaderboards, ranks);
+            for (int round = 0, redone = Integer.MAX_VALUE; round < CATCH_UP_ROUNDS && redone > CATCH_UP_LOCKED; round++) {
+                redone = catchUp(next, before, after, n);
+            }
+
+            long lsn = 0, paused;
+            int end, caughtUp;
+            checkpointLock.lock();
+            registering.lock();
+            long pauseStart = System.nanoTime();
+            for (ReentrantLock stripe : stripes) stripe.lock();
+            try {
+                // Nothing is changed until every row is known to score under the new limits
+                caughtUp = catchUp(next, before, after, n);
+                end = nextSeq.get();
+                Leaderboard.Standing[][] late = new Leaderboard.Standing[modeCount][Math.max(0, end - n)];
+                for (int id = n; id < end; id++) {
+                    Competitor c = byId.get(id);
+                    if (c == null) continue;
+                    for (int m = 0; m < modeCount; m++) {
+                        Leaderboard.Standing cur = c.standings[m];
+                        Leaderboard.Standing now = cur == null ? null : rescored(to, m, cur);
+                        if (now != null) {
+                            next.leaderboards()[m].add(now);
+                            next.ranks()[m].add(now.total(), 1);
+                        }
+                        late[m][id - n] = now;
+                    }
+                    caughtUp++;
+                }
+                for (int id = 0; id < end; id++) {
+                    Competitor c = byId.get(id);
+                    if (c == null) continue;
+                    for (int m = 0; m < modeCount; m++) c.standings[m] = id < n ? after[m][id] : late[m][id - n];
+                }
+                gen = next;
+                if (!replaying) lsn = log.appendTables(to.version());
+            } finally {
+                for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+                paused = System.nanoTime() - pauseStart;
+                registering.unlock();
+                checkpointLock.unlock();
+            }
+            for (int m = 0; m < modeCount; m++) changed(m);
+            // During replay log is not open yet, and nothing was appended
+            if (!replaying) log.awaitDurable(lsn);
+            Rescore done = new Rescore("done", from, to.version(), end, marks.get(), caughtUp,
+                    (System.nanoTime() - start) / 1e6, paused / 1e6, null);
+            lastRescore = done;
+            return done;
+        } catch (RuntimeException e) {
+            lastRescore = new Rescore("failed", from, to.version(), 0, 0, 0, (System.nanoTime() - start) / 1e6, 0, e.getMessage());
+            throw e;
+        }
+    }
+
+    private final class RescoreTask extends RecursiveAction {
+        private final EventRegistry tables;
+        private final Leaderboard.Standing[][] before, after;
+        private final int from, to;
+
+        RescoreTask(EventRegistry tables, Leaderboard.Standing[][] before, Leaderboard.Standing[][] after, int from, int to) {
+            this.tables = tables;
+            this.before = before;
+            this.after = after;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RESCORE_CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RescoreTask(tables, before, after, from, mid), new RescoreTask(tables, before, after, mid, to));
+                return;
+            }
+            for (int m = 0; m < modeCount; m++) rescore(m);
+        }
+
+        // Rows are read without their stripe: each is immutable, and one replaced meanwhile no
+        // longer matches before[] and is redone by catchUp
+        private void rescore(int mode) {
+            EventRegistry r = tables;
+            int first = r.firstEvent(mode);
+            Leaderboard.Standing[] rows = before[mode];
+            int[][] points = new int[to - from][];
+            for (int id = from; id < to; id++) {
+                Competitor c = byId.get(id);
+                Leaderboard.Standing s = c == null ? null : c.standings[mode];
+                rows[id] = s;
+                if (s != null && s.scored() != 0) points[id - from] = new int[r.eventCount(mode)];
+            }
+            double[] raw = new double[to - from];
+            int[] at = new int[to - from];
+            for (int i = 0; i < r.eventCount(mode); i++) {
+                int k = 0;
+                for (int id = from; id < to; id++) {
+                    Leaderboard.Standing s = rows[id];
+                    if (s == null || !s.has(i)) continue;
+                    double mark = s.mark(i);
+                    if (mark < r.min(first + i) || mark > r.max(first + i)) throw outside(r, first + i, s, mark);
+                    raw[k] = mark;
+                    at[k++] = id - from;
+                }
+                if (k == 0) continue;
+                int[] pts = scoring.scoreBulk(r, first + i, Arrays.copyOf(raw, k));
+                for (int j = 0; j < k; j++) points[at[j]][i] = pts[j];
+            }
+            for (int id = from; id < to; id++) {
+                Leaderboard.Standing s = rows[id];
+                if (s == null) continue;
+                Leaderboard.Standing now = s;
+                // Rows without scores do not depend on the tables and move over as they are
+                if (s.scored() != 0) {
+                    int total = 0;
+                    for (int bits = s.scored(); bits != 0; bits &= bits - 1) total += points[id - from][Integer.numberOfTrailingZeros(bits)];
+                    now = new Leaderboard.Standing(s.competitor(), total, s.scored(), points[id - from], s.marks(), s.exact());
+                }
+                after[mode][id] = now;
+            }
+        }
+    }
+
+    // Redoes the new rows of competitors below n whose current row is not the one they were computed
+    // from, and returns how many competitors that was. Without the locks a row may change again
+    // right after it is read, which the next pass catches.
+    private int catchUp(Generation next, Leaderboard.Standing[][] before, Leaderboard.Standing[][] after, int n) {
+        int redone = 0;
+        for (int id = 0; id < n; id++) {
+            Competitor c = byId.get(id);
+            if (c == null) continue;
+            boolean changed = false;
+            for (int m = 0; m < modeCount; m++) {
+                Leaderboard.Standing cur = c.standings[m];
+                if (cur == before[m][id]) continue;
+                Leaderboard.Standing stale = after[m][id];
+                if (stale != null) {
+                    next.leaderboards()[m].remove(stale);
+                    next.ranks()[m].add(stale.total(), -1);
+                }
+                Leaderboard.Standing now = cur == null ? null : rescored(next.tables(), m, cur);
+                if (now != null) {
+                    next.leaderboards()[m].add(now);
+                    next.ranks()[m].add(now.total(), 1);
+                }
+                before[m][id] = cur;
+                after[m][id] = now;
+                changed = true;
+            }
+            if (changed) redone++;
+        }
+        return redone;
+    }
+
+    private Leaderboard.Standing rescored(EventRegistry r, int mode, Leaderboard.Standing s) {
+        if (s.scored() == 0) return s;
+        int first = r.firstEvent(mode);
+        int[] points = new int[s.points().length];
+        int total = 0;
+        for (int bits = s.scored(); bits != 0; bits &= bits - 1) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            double mark = s.mark(i);
+            if (mark < r.min(first + i) || mark > r.max(first + i)) throw outside(r, first + i, s, mark);
+            points[i] = scoring.score(r, first + i, mark);
+            total += points[i];
+        }
+        return new Leaderboard.Standing(s.competitor(), total, s.scored(), points, s.marks(), s.exact());
+    }
+
+    private static IllegalArgumentException outside(EventRegistry r, int event, Leaderboard.Standing s, double mark) {
+        return new IllegalArgumentException(s.competitor().name + ": " + r.modeId(r.modeOf(event)) + " " + r.eventId(event) + " mark "
+                + mark + " is outside the limits of scoring tables version " + r.version());
+    }
+
+    public List<Map<String, Object>> standings(String mode) {
+        return standings(registry().mode(mode));
+    }
+
+    public List<Map<String, Object>> standings(int modeOrdinal) {
+        return standings(modeOrdinal, 0, Integer.MAX_VALUE);
+    }
+
+    // Pages ending above this are served from a snapshot, smaller ones straight off the leaderboard
+    private static final int DIRECT_PAGE_ROWS = 1000;
+
+    public List<Map<String, Object>> standings(int modeOrdinal, int offset, int limit) {
+        return standingsPage(modeOrdinal, offset, limit).rows();
+    }
+
+    // rows hold every write to the mode up to version, and possibly later ones
+    public record StandingsPage(long version, List<Map<String, Object>> rows) {}
+
+    // One page of the mode's standings, highest total first. Small pages (top-N) walk the
+    // leaderboard when the snapshot is stale, so they never pay for rebuilding the whole field.
+    public StandingsPage standingsPage(int modeOrdinal, int offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+        List<Leaderboard.Standing> page;
+        long version = versions.get(modeOrdinal);
+        ModeSnapshot snap = snapshots.get(modeOrdinal);
+        if (snap.version != version && (long) offset + limit <= DIRECT_PAGE_ROWS) {
+            page = readBoard(modeOrdinal, b -> b.page(offset, limit));
+        } else {
+            snap = snapshot(modeOrdinal);
+            version = snap.version;
+            Leaderboard.Standing[] ranked = snap.ranked;
+            int from = Math.min(offset, ranked.length);
+            int to = (int) Math.min(ranked.length, (long) from + limit);
+            page = Arrays.asList(ranked).subList(from, to);
+        }
+        EventRegistry r = registry();
+        int first = r.firstEvent(modeOrdinal);
+        List<Map<String, Object>> out = new ArrayList<>(page.size());
+        for (Leaderboard.Standing s : page) {
+            Map<String, Integer> scores = new LinkedHashMap<>();
+            for (int bits = s.scored(); bits != 0; bits &= bits - 1) {
+                int i = Integer.numberOfTrailingZeros(bits);
+                scores.put(r.eventId(first + i), s.points()[i]);
+            }
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", s.competitor().name);
+            m.put("scores", scores);
+            m.put("total", s.total());
+            out.add(m);
+        }
+        return new StandingsPage(version, out);
+    }
+
+    // A score replaces a row with a remove and an add, so a walk of a leaderboard that overlaps a
+    // write can see the competitor twice or not at all. Writes to leaderboards count themselves
+    // in and out here, and a walk that no write overlapped is kept. After a few overlapped walks
+    // the reader walks holding every lock those writes take instead.
+    private final AtomicLong boardWritesStarted = new AtomicLong(), boardWritesFinished = new AtomicLong();
+    private static final int OPTIMISTIC_WALKS = 3;
+
+    private <T> T readBoard(int mode, Function<Leaderboard, T> walk) {
+        for (int i = 0; i < OPTIMISTIC_WALKS; i++) {
+            // Finished first: a write in progress then shows as started > finished
+            long finished = boardWritesFinished.get(), started = boardWritesStarted.get();
+            if (started != finished) {
+                Thread.onSpinWait();
+                continue;
+            }
+            T out = walk.apply(gen.leaderboards()[mode]);
+            if (boardWritesStarted.get() == started) return out;
+        }
+        lock();
+        if (monitor == null) {
+            registering.lock();
+            for (ReentrantLock stripe : stripes) stripe.lock();
+        }
+        try {
+            return walk.apply(gen.leaderboards()[mode]);
+        } finally {
+            if (monitor == null) {
+                for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+                registering.unlock();
+            }
+            unlock();
+        }
+    }
+
+    private final AtomicLong snapshotBuilds = new AtomicLong();
+    private final AtomicLong snapshotBuildNanos = new AtomicLong();
+
+    public record SnapshotStats(long builds, long totalBuildNanos, long lastBuildNanos, int lastRows) {}
+
+    public SnapshotStats snapshotStats(int modeOrdinal) {
+        ModeSnapshot s = snapshots.get(modeOrdinal);
+        return new SnapshotStats(snapshotBuilds.get(), snapshotBuildNanos.get(), s.buildNanos, s.ranked.length);
+    }
+
+    // Never older than the mode's version when called. A stale snapshot is rebuilt by one reader;
+    // concurrent readers wait for that build and share it, so several writes between two reads
+    // cost one O(n) build.
+    private ModeSnapshot snapshot(int mode) {
+        ModeSnapshot s = snapshots.get(mode);
+        long v = versions.get(mode);
+        if (s.version >= v) return s;
+        snapshotBuild[mode].lock();
+        try {
+            s = snapshots.get(mode);
+            if (s.version >= v) return s;
+            long version = versions.get(mode);
+            s = readBoard(mode, b -> ModeSnapshot.build(version, b, nextSeq.get()));
+            snapshots.set(mode, s);
+            snapshotBuilds.incrementAndGet();
+            snapshotBuildNanos.addAndGet(s.buildNanos);
+            metrics.standingsBuilt(mode, s.buildNanos, s.ranked.length);
+            return s;
+        } finally {
+            snapshotBuild[mode].unlock();
+        }
+    }
+
+    public record Rank(String name, String mode, int total, int rank, int competitors, double percentile) {}
+
+    // Rank 1 is the best total; ties share a rank. Percentile counts half of the ties as below.
+    // Returns null for unknown competitors and those not listed in the mode.
+    // Lock-free; counts may lag a concurrent write by that one update, or a rescore by its swap.
+    public Rank rank(String name, int modeOrdinal) {
+        Competitor c = name == null ? null : competitors.get(name);
+        RankIndex idx = gen.ranks()[modeOrdinal];
+        Leaderboard.Standing s = c == null ? null : c.standings[modeOrdinal];
+        if (s == null) return null;
+        int total = s.total();
+        int n = idx.count();
+        int atMost = idx.atMost(total);
+        int below = total == 0 ? 0 : idx.atMost(total - 1);
+        double percentile = n == 0 ? 0 : 100.0 * (below + (atMost - below) / 2.0) / n;
+        return new Rank(c.name, registry().modeId(modeOrdinal), total, Math.max(1, n - atMost + 1), n, percentile);
+    }
+
+    public String exportCsv(String mode) {
+        return exportCsv(registry().mode(mode));
+    }
+
+    public String exportCsv(int modeOrdinal) {
+        StringWriter out = new StringWriter();
+        try {
+            exportCsv(modeOrdinal, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    public void exportCsv(int modeOrdinal, Writer out) throws IOException {
+        export(modeOrdinal).write(out);
+    }
+
+    // The mode's latest snapshot, held so its version can go out (as an ETag) before its rows
+    public final class Export {
+        private final int mode;
+        private final ModeSnapshot snap;
+
+        private Export(int mode, ModeSnapshot snap) {
+            this.mode = mode;
+            this.snap = snap;
+        }
+
+        public long version() { return snap.version; }
+
+        public void write(Writer out) throws IOException { exportCsv(mode, snap, out); }
+    }
+
+    public Export export(int modeOrdinal) {
+        return new Export(modeOrdinal, snapshot(modeOrdinal));
+    }
+
+    // In registration order, without taking any lock
+    private void exportCsv(int modeOrdinal, ModeSnapshot snap, Writer out) throws IOException {
+        Leaderboard.Standing[] rows = snap.registered;
+        int[] columns = snap.columns;
+        int first = registry().firstEvent(modeOrdinal);
+        out.write("Name");
+        for (int i : columns) out.append(',').write(registry().eventId(first + i));
+        out.write(",Total\n");
+        for (Leaderboard.Standing r : rows) {
+            out.write(r.competitor().name);
+            for (int i : columns) {
+                out.write(',');
+                if (r.has(i)) out.write(Integer.toString(r.points()[i]));
+            }
+            out.append(',').write(Integer.toString(r.total()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    public int count() { return competitors.size(); }
+
+    // Heap cost per competitor (name, map entry, Competitor) and per leaderboard row (Standing and
+    // skip-list nodes), plus the points and marks arrays. Fitted to used heap after GC with 200k
+    // competitors on a 64-bit JVM with compressed oops: ~300 bytes unscored, ~350 scored in one mode.
+    private static final long COMPETITOR_BYTES = 177, ROW_BYTES = 62;
+    private final AtomicLong arrayBytes = new AtomicLong();
+    private final AtomicLong marks = new AtomicLong();
+
+    public record Stats(int competitors, long marks, long estimatedBytes) {}
+
+    public Stats stats() {
+        int n = count();
+        long m = marks.get();
+        long rows = 0;
+        for (RankIndex idx : gen.ranks()) rows += idx.count();
+        return new Stats(n, m, n * COMPETITOR_BYTES + rows * ROW_BYTES + arrayBytes.get());
+    }
 }
@@ -0,0 +1,100 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.persist.WalSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// Competitions by id. Each is its own CompetitionService with its own lock, stripes, leaderboards
+// and log, so a busy meet never contends with a small one. The application's CompetitionService
+// bean is the "default" competition, which the unprefixed /api routes use.
+@Service
+public class Competitions {
+    public static final String DEFAULT = "default";
+    // Ids name log files, so they are restricted to a portable file-name alphabet
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final ScoringService scoring;
+    private final String concurrency;
+    private final WalSettings wal;
+    private final MeterRegistry meters;
+    private final Map<String, CompetitionService> shards = new ConcurrentHashMap<>();
+    private final ReentrantLock creating = new ReentrantLock();
+
+    public Competitions(CompetitionService defaultCompetition, ScoringService scoring,
+                        @Value("${decathlon.competition.concurrency:monitor}") String concurrency,
+                        WalSettings wal, MeterRegistry meters) {
+        this.scoring = scoring;
+        this.concurrency = concurrency;
+        this.wal = wal;
+        this.meters = meters;
+        shards.put(DEFAULT, defaultCompetition);
+        if (wal.enabled && Files.isDirectory(wal.competitionsDir())) {
+            try (DirectoryStream<Path> logs = Files.newDirectoryStream(wal.competitionsDir(), "*.wal")) {
+                for (Path log : logs) {
+                    String id = log.getFileName().toString().replaceFirst("\\.wal$", "");
+                    if (ID.matcher(id).matches() && !DEFAULT.equals(id)) shards.put(id, open(id));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not list competitions in " + wal.competitionsDir(), e);
+            }
+        }
+    }
+
+    private CompetitionService open(String id) {
+        return new CompetitionService(scoring, concurrency, wal.forCompetition(id), new CompetitionMetrics(meters, id, scoring.registry()));
+    }
+
+    // null (no id) is the default competition; unknown ids give null
+    public CompetitionService get(String id) {
+        return shards.get(id == null ? DEFAULT : id);
+    }
+
+    // Returns false when the id is already taken
+    public boolean create(String id) {
+        if (id == null || !ID.matcher(id).matches()) throw new IllegalArgumentException("Competition id must be 1-64 letters, digits, '-' or '_'");
+        // Opening a competition reads its log, so it is done under a lock of our own rather than
+        // inside computeIfAbsent
+        creating.lock();
+        try {
+            if (shards.containsKey(id)) return false;
+            shards.put(id, open(id));
+            return true;
+        } finally {
+            creating.unlock();
+        }
+    }
+
+    public List<String> ids() {
+        return new ArrayList<>(new TreeMap<>(shards).keySet());
+    }
+
+    // The default competition is a bean of its own and closed by the container
+    @PreDestroy
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, CompetitionService> e : shards.entrySet()) {
+            if (DEFAULT.equals(e.getKey())) continue;
+            try {
+                e.getValue().close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.decathlon.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Competitors by id (their registration seq) in fixed-size chunks added as ids grow. A lookup is
+// two array reads with no hashing; iteration runs in id order. Reads are lock-free, growing the
+// chunk directory takes a lock.
+final class CompetitorTable {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    private volatile AtomicReferenceArray<CompetitionService.Competitor>[] chunks = newDirectory(1);
+    private final ReentrantLock grow = new ReentrantLock();
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<CompetitionService.Competitor>[] newDirectory(int n) {
+        AtomicReferenceArray<CompetitionService.Competitor>[] dir = new AtomicReferenceArray[n];
+        for (int i = 0; i < n; i++) dir[i] = new AtomicReferenceArray<>(CHUNK);
+        return dir;
+    }
+
+    CompetitionService.Competitor get(int id) {
+        AtomicReferenceArray<CompetitionService.Competitor>[] dir = chunks;
+        int c = id >>> CHUNK_BITS;
+        return id < 0 || c >= dir.length ? null : dir[c].get(id & (CHUNK - 1));
+    }
+
+    void put(int id, CompetitionService.Competitor competitor) {
+        int c = id >>> CHUNK_BITS;
+        AtomicReferenceArray<CompetitionService.Competitor>[] dir = chunks;
+        if (c >= dir.length) {
+            grow.lock();
+            try {
+                dir = chunks;
+                if (c >= dir.length) {
+                    AtomicReferenceArray<CompetitionService.Competitor>[] bigger = Arrays.copyOf(dir, Math.max(c + 1, dir.length * 2));
+                    for (int i = dir.length; i < bigger.length; i++) bigger[i] = new AtomicReferenceArray<>(CHUNK);
+                    chunks = dir = bigger;
+                }
+            } finally {
+                grow.unlock();
+            }
+        }
+        dir[c].set(id & (CHUNK - 1), competitor);
+    }
+
+    // Competitors with id < limit, in id order; ids never handed out are skipped
+    void forEach(int limit, Consumer<CompetitionService.Competitor> action) {
+        for (int id = 0; id < limit; id++) {
+            CompetitionService.Competitor c = get(id);
+            if (c != null) action.accept(c);
+        }
+    }
+}
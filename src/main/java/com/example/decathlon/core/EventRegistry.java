@@ -0,0 +1,121 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.core.ScoringService.EventDef;
+import com.example.decathlon.core.ScoringService.Type;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Modes and events compiled into dense ordinals. Events of all modes share one ordinal
+// space, mode m owns ordinals first(m) .. first(m) + eventCount(m) - 1. Each version of the
+// scoring tables is its own registry; all versions share the same modes and events.
+public final class EventRegistry {
+    public static final int UNKNOWN = -1;
+
+    public record ModeDef(String id, List<EventDef> events) {}
+
+    private final int version;
+    private final List<ModeDef> modes;
+    private final String[] modeIds;
+    private final int[] firstEvent;
+    private final Map<String, Integer> modeIndex = new HashMap<>();
+    private final Map<String, Integer>[] eventIndex;
+
+    final String[] eventIds;
+    final int[] eventMode;
+    final boolean[] track;
+    final double[] a, b, c, lo, hi;
+    final String[] unit;
+    final PointsTable[] tables;
+
+    @SuppressWarnings("unchecked")
+    EventRegistry(int version, List<ModeDef> modes, boolean compileTables) {
+        this.version = version;
+        this.modes = List.copyOf(modes);
+        int n = modes.stream().mapToInt(m -> m.events().size()).sum();
+        modeIds = new String[modes.size()];
+        firstEvent = new int[modes.size() + 1];
+        eventIndex = new Map[modes.size()];
+        eventIds = new String[n];
+        eventMode = new int[n];
+        track = new boolean[n];
+        a = new double[n];
+        b = new double[n];
+        c = new double[n];
+        lo = new double[n];
+        hi = new double[n];
+        unit = new String[n];
+        tables = new PointsTable[n];
+
+        int ev = 0;
+        for (int m = 0; m < modes.size(); m++) {
+            ModeDef md = modes.get(m);
+            // Scored events of a mode are tracked in an int bitmask
+            if (md.events().size() > 32) throw new IllegalArgumentException("Mode " + md.id() + " has more than 32 events");
+            modeIds[m] = md.id();
+            modeIndex.put(md.id(), m);
+            eventIndex[m] = new HashMap<>();
+            firstEvent[m] = ev;
+            for (EventDef e : md.events()) {
+                eventIds[ev] = e.id();
+                eventMode[ev] = m;
+                track[ev] = e.type() == Type.TRACK;
+                a[ev] = e.A();
+                b[ev] = e.B();
+                c[ev] = e.C();
+                lo[ev] = e.min();
+                hi[ev] = e.max();
+                unit[ev] = e.unit();
+                if (compileTables) tables[ev] = PointsTable.compile(e);
+                eventIndex[m].put(e.id(), ev);
+                ev++;
+            }
+        }
+        firstEvent[modes.size()] = ev;
+    }
+
+    // Unknown or missing modes fall back to the first (default) mode.
+    public int mode(String id) {
+        if (id == null) return 0;
+        Integer m = modeIndex.get(id);
+        return m == null ? 0 : m;
+    }
+
+    public int event(int mode, String id) {
+        Integer e = id == null ? null : eventIndex[mode].get(id);
+        return e == null ? UNKNOWN : e;
+    }
+
+    public int version() { return version; }
+
+    public List<ModeDef> modes() { return modes; }
+
+    public int modeCount() { return modeIds.length; }
+
+    public String modeId(int mode) { return modeIds[mode]; }
+
+    public int firstEvent(int mode) { return firstEvent[mode]; }
+
+    public int eventCount(int mode) { return firstEvent[mode + 1] - firstEvent[mode]; }
+
+    public int eventCount() { return eventIds.length; }
+
+    public int modeOf(int event) { return eventMode[event]; }
+
+    public String eventId(int event) { return eventIds[event]; }
+
+    // Highest total a competitor can reach in mode, from the best valid mark of each event
+    public int maxTotal(int mode) {
+        int sum = 0;
+        for (int ev = firstEvent(mode); ev < firstEvent(mode + 1); ev++) {
+            double best = track[ev] ? lo[ev] : hi[ev];
+            sum += ScoringService.formula(track[ev], a[ev], b[ev], c[ev], best);
+        }
+        return sum;
+    }
+
+    public double min(int event) { return lo[event]; }
+
+    public double max(int event) { return hi[event]; }
+}
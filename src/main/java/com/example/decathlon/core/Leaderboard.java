@@ -0,0 +1,153 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.persist.Checkpoint;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+// Competitors of one mode ordered by total (highest first), then registration order.
+// Updated in O(log n) per score, so top-N reads and snapshots never sort the field.
+final class Leaderboard {
+    // One competitor's row in a mode; immutable, replaced on every score. points and marks are
+    // indexed by event within the mode (ordinal - firstEvent), bit i of scored marks them as set,
+    // and total is the sum of the points. A mark is kept in hundredths of its unit; one off that
+    // grid is OFF_GRID in marks and its exact value is in exact, which is null until there is one.
+    // Rows of competitors without scores share zero-length arrays.
+    record Standing(CompetitionService.Competitor competitor, int total, int scored, int[] points, int[] marks, double[] exact) {
+        static final int[] NO_POINTS = new int[0];
+        // Checkpoints store marks in the same encoding
+        static final int OFF_GRID = Checkpoint.OFF_GRID;
+
+        Standing(CompetitionService.Competitor competitor) {
+            this(competitor, 0, 0, NO_POINTS, NO_POINTS, null);
+        }
+
+        boolean has(int i) { return (scored & (1 << i)) != 0; }
+
+        double mark(int i) { return marks[i] == OFF_GRID ? exact[i] : marks[i] / 100.0; }
+
+        static int hundredths(double raw) {
+            long q = Math.round(raw * 100);
+            return q / 100.0 == raw && q > OFF_GRID && q <= Integer.MAX_VALUE ? (int) q : OFF_GRID;
+        }
+    }
+
+    private static final Comparator<Standing> ORDER = (x, y) -> x.total() != y.total()
+            ? Integer.compare(y.total(), x.total())
+            : Integer.compare(x.competitor().seq, y.competitor().seq);
+
+    // A map rather than a set for the constructor that links already sorted rows in one pass
+    private final ConcurrentSkipListMap<Standing, Boolean> index;
+
+    Leaderboard() {
+        index = new ConcurrentSkipListMap<>(ORDER);
+    }
+
+    // A leaderboard of rows, which are sorted in place (in parallel, on the common fork-join pool)
+    Leaderboard(Standing[] rows) {
+        Arrays.parallelSort(rows, ORDER);
+        index = new ConcurrentSkipListMap<>(new Sorted(rows, 0, rows.length));
+    }
+
+    void add(Standing s) { index.put(s, Boolean.TRUE); }
+
+    void remove(Standing s) { index.remove(s); }
+
+    // Callers serialize updates per competitor, so old is always the current row. Not atomic: a
+    // walk that overlaps it can see neither row or both, which readers must rule out.
+    void replace(Standing old, Standing now) {
+        index.remove(old);
+        index.put(now, Boolean.TRUE);
+    }
+
+    void forEach(Consumer<Standing> action) { index.keySet().forEach(action); }
+
+    // Walk of the first offset + limit rows, without locks
+    List<Standing> page(int offset, int limit) {
+        List<Standing> out = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Standing> it = index.keySet().iterator();
+        for (int i = 0; i < offset && it.hasNext(); i++) it.next();
+        while (out.size() < limit && it.hasNext()) out.add(it.next());
+        return out;
+    }
+
+    // Read-only map view of rows[from, to), which are in ORDER
+    private static final class Sorted extends AbstractMap<Standing, Boolean> implements SortedMap<Standing, Boolean> {
+        private final Standing[] rows;
+        private final int from, to;
+
+        Sorted(Standing[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Comparator<? super Standing> comparator() { return ORDER; }
+
+        @Override
+        public Set<Map.Entry<Standing, Boolean>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return to - from; }
+
+                @Override
+                public Iterator<Map.Entry<Standing, Boolean>> iterator() {
+                    return new Iterator<>() {
+                        private int i = from;
+
+                        @Override
+                        public boolean hasNext() { return i < to; }
+
+                        @Override
+                        public Map.Entry<Standing, Boolean> next() {
+                            if (i >= to) throw new NoSuchElementException();
+                            return new AbstractMap.SimpleImmutableEntry<>(rows[i++], Boolean.TRUE);
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public SortedMap<Standing, Boolean> subMap(Standing fromKey, Standing toKey) {
+            int lo = lowest(fromKey);
+            return new Sorted(rows, lo, Math.max(lo, lowest(toKey)));
+        }
+
+        @Override
+        public SortedMap<Standing, Boolean> headMap(Standing toKey) { return new Sorted(rows, from, lowest(toKey)); }
+
+        @Override
+        public SortedMap<Standing, Boolean> tailMap(Standing fromKey) { return new Sorted(rows, lowest(fromKey), to); }
+
+        @Override
+        public Standing firstKey() {
+            if (from == to) throw new NoSuchElementException();
+            return rows[from];
+        }
+
+        @Override
+        public Standing lastKey() {
+            if (from == to) throw new NoSuchElementException();
+            return rows[to - 1];
+        }
+
+        // Index of the first row at or after key, within [from, to]
+        private int lowest(Standing key) {
+            int i = Arrays.binarySearch(rows, from, to, key, ORDER);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+}
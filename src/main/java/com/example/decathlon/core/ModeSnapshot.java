@@ -0,0 +1,58 @@
+package com.example.decathlon.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+// Immutable view of one mode, shared by all readers until a write makes it stale.
+// ranked is leaderboard order, registered is registration order, columns are the events (index
+// within the mode) anyone has a score in, in event order.
+final class ModeSnapshot {
+    static final ModeSnapshot EMPTY = new ModeSnapshot(-1, new Leaderboard.Standing[0], new Leaderboard.Standing[0], new int[0], 0);
+
+    final long version;
+    final Leaderboard.Standing[] ranked;
+    final Leaderboard.Standing[] registered;
+    final int[] columns;
+    final long buildNanos;
+
+    private ModeSnapshot(long version, Leaderboard.Standing[] ranked, Leaderboard.Standing[] registered,
+                         int[] columns, long buildNanos) {
+        this.version = version;
+        this.ranked = ranked;
+        this.registered = registered;
+        this.columns = columns;
+        this.buildNanos = buildNanos;
+    }
+
+    // One pass over the mode's leaderboard; competitors registered after seqLimit was read are
+    // left for the next snapshot, so both orders always hold the same rows. Registration order
+    // comes from a seq-indexed table when the mode holds a good share of all competitors and
+    // from sorting otherwise, so a small mode never pays for the size of the whole field.
+    static ModeSnapshot build(long version, Leaderboard board, int seqLimit) {
+        long start = System.nanoTime();
+        List<Leaderboard.Standing> list = new ArrayList<>();
+        int[] scored = new int[1];
+        board.forEach(s -> {
+            if (s.competitor().seq < seqLimit) {
+                list.add(s);
+                scored[0] |= s.scored();
+            }
+        });
+        Leaderboard.Standing[] ranked = list.toArray(new Leaderboard.Standing[0]);
+        Leaderboard.Standing[] registered;
+        if (ranked.length >= seqLimit / 8) {
+            Leaderboard.Standing[] bySeq = new Leaderboard.Standing[seqLimit];
+            for (Leaderboard.Standing s : ranked) bySeq[s.competitor().seq] = s;
+            registered = Arrays.stream(bySeq).filter(Objects::nonNull).toArray(Leaderboard.Standing[]::new);
+        } else {
+            registered = ranked.clone();
+            Arrays.sort(registered, Comparator.comparingInt(s -> s.competitor().seq));
+        }
+        int[] columns = new int[Integer.bitCount(scored[0])];
+        for (int bits = scored[0], i = 0; bits != 0; bits &= bits - 1) columns[i++] = Integer.numberOfTrailingZeros(bits);
+        return new ModeSnapshot(version, ranked, registered, columns, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.decathlon.core;
+
+// Points for every mark of one event inside its validated range, at the resolution
+// marks are recorded in (hundredths of a second, whole cm, cm for throws in metres).
+final class PointsTable {
+    static final int OFF_GRID = -1;
+
+    private final double scale;
+    private final long loQ;
+    private final int[] points;
+
+    private PointsTable(double scale, long loQ, int[] points) {
+        this.scale = scale;
+        this.loQ = loQ;
+        this.points = points;
+    }
+
+    // The widest built-in range is the 1500 m, 25,001 marks
+    static final int MAX_SIZE = 1 << 20;
+
+    static double scaleOf(String unit) {
+        return "cm".equals(unit) ? 1.0 : 100.0;
+    }
+
+    // Marks in e's limits at table resolution; a double, so no limits can overflow it
+    static double sizeOf(ScoringService.EventDef e) {
+        double scale = scaleOf(e.unit());
+        return Math.floor(e.max() * scale) - Math.ceil(e.min() * scale) + 1;
+    }
+
+    static PointsTable compile(ScoringService.EventDef e) {
+        if (sizeOf(e) > MAX_SIZE) throw new IllegalArgumentException("Points table for " + e.id() + " would have more than " + MAX_SIZE + " entries");
+        double scale = scaleOf(e.unit());
+        long loQ = (long) Math.ceil(e.min() * scale);
+        long hiQ = (long) Math.floor(e.max() * scale);
+        int[] points = new int[(int) (hiQ - loQ + 1)];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = ScoringService.formula(e, (loQ + i) / scale);
+        }
+        return new PointsTable(scale, loQ, points);
+    }
+
+    // Index of raw in the table, or OFF_GRID when raw is not an exact mark at table resolution.
+    int indexOf(double raw) {
+        long q = Math.round(raw * scale);
+        if (q / scale != raw) return OFF_GRID;
+        long i = q - loQ;
+        return i < 0 || i >= points.length ? OFF_GRID : (int) i;
+    }
+
+    int pointsAt(int index) { return points[index]; }
+
+    int size() { return points.length; }
+
+    double markAt(int index) { return (loQ + index) / scale; }
+}
@@ -0,0 +1,48 @@
+package com.example.decathlon.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Fenwick tree counting competitors per total in one mode. Totals are bounded by the
+// mode's maximum points, so rank and percentile cost O(log maxPoints).
+final class RankIndex {
+    private final AtomicIntegerArray tree;
+    private final int maxTotal;
+
+    RankIndex(int maxTotal) {
+        this.maxTotal = maxTotal;
+        this.tree = new AtomicIntegerArray(maxTotal + 2);
+    }
+
+    // counts[t] competitors with total t, for t in 0..maxTotal; built in O(maxTotal)
+    RankIndex(int maxTotal, int[] counts) {
+        this.maxTotal = maxTotal;
+        int[] t = new int[maxTotal + 2];
+        for (int i = 1; i < t.length; i++) {
+            t[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent < t.length) t[parent] += t[i];
+        }
+        this.tree = new AtomicIntegerArray(t);
+    }
+
+    void add(int total, int delta) {
+        for (int i = clamp(total) + 1; i < tree.length(); i += i & -i) tree.addAndGet(i, delta);
+    }
+
+    void move(int from, int to) {
+        if (from == to) return;
+        add(from, -1);
+        add(to, 1);
+    }
+
+    // Number of competitors with total <= t
+    int atMost(int t) {
+        int n = 0;
+        for (int i = clamp(t) + 1; i > 0; i -= i & -i) n += tree.get(i);
+        return n;
+    }
+
+    int count() { return atMost(maxTotal); }
+
+    private int clamp(int t) { return Math.max(0, Math.min(t, maxTotal)); }
+}
@@ -1,88 +1,248 @@
 package com.example.decathlon.core;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class ScoringService {
     public enum Type { TRACK, FIELD }
-    public record EventDef(String id, Type type, double A, double B, double C, String unit) {}
-
-    private final Map<String, EventDef> dec = Map.ofEntries(
-            Map.entry("100m", new EventDef("100m", Type.TRACK, 25.4347, 18.0, 1.81, "s")),
-            Map.entry("longJump", new EventDef("longJump", Type.FIELD, 0.14354, 220.0, 1.40, "cm")),
-            Map.entry("shotPut", new EventDef("shotPut", Type.FIELD, 51.39, 1.5, 1.05, "m")),
-            Map.entry("highJump", new EventDef("highJump", Type.FIELD, 0.8465, 75.0, 1.42, "cm")),
-            Map.entry("400m", new EventDef("400m", Type.TRACK, 1.53775, 82.0, 1.81, "s")),
-            Map.entry("110mHurdles", new EventDef("110mHurdles", Type.TRACK, 5.74352, 28.5, 1.92, "s")),
-            Map.entry("discus", new EventDef("discus", Type.FIELD, 12.91, 4.0, 1.10, "m")),
-            Map.entry("poleVault", new EventDef("poleVault", Type.FIELD, 0.2797, 100.0, 1.35, "cm")),
-            Map.entry("javelin", new EventDef("javelin", Type.FIELD, 10.14, 7.0, 1.08, "m")),
-            Map.entry("1500m", new EventDef("1500m", Type.TRACK, 0.03768, 480.0, 1.85, "s"))
-    );
+    public record EventDef(String id, Type type, double A, double B, double C, String unit, double min, double max) {}
 
-    private final Map<String, EventDef> hep = Map.ofEntries(
-            Map.entry("100mHurdles", new EventDef("100mHurdles", Type.TRACK, 9.23076, 26.7, 1.835, "s")),
-            Map.entry("highJump", new EventDef("highJump", Type.FIELD, 1.84523, 75.0, 1.348, "cm")),
-            Map.entry("shotPut", new EventDef("shotPut", Type.FIELD, 56.0211, 1.5, 1.05, "m")),
-            Map.entry("200m", new EventDef("200m", Type.TRACK, 4.99087, 42.5, 1.81, "s")),
-            Map.entry("longJump", new EventDef("longJump", Type.FIELD, 0.188807, 210.0, 1.41, "cm")),
-            Map.entry("javelin", new EventDef("javelin", Type.FIELD, 15.9803, 3.8, 1.04, "m")),
-            Map.entry("800m", new EventDef("800m", Type.TRACK, 0.11193, 254.0, 1.88, "s"))
+    // Exakta gränser (inkl. dec & hep). A new mode is one more entry here.
+    public static final List<EventRegistry.ModeDef> MODES = List.of(
+            new EventRegistry.ModeDef("DEC", List.of(
+                    new EventDef("100m", Type.TRACK, 25.4347, 18.0, 1.81, "s", 5, 20),
+                    new EventDef("longJump", Type.FIELD, 0.14354, 220.0, 1.40, "cm", 0, 1000),
+                    new EventDef("shotPut", Type.FIELD, 51.39, 1.5, 1.05, "m", 0, 30),
+                    new EventDef("highJump", Type.FIELD, 0.8465, 75.0, 1.42, "cm", 0, 300),
+                    new EventDef("400m", Type.TRACK, 1.53775, 82.0, 1.81, "s", 20, 100),
+                    new EventDef("110mHurdles", Type.TRACK, 5.74352, 28.5, 1.92, "s", 10, 30),
+                    new EventDef("discus", Type.FIELD, 12.91, 4.0, 1.10, "m", 0, 85),
+                    new EventDef("poleVault", Type.FIELD, 0.2797, 100.0, 1.35, "cm", 0, 1000),
+                    new EventDef("javelin", Type.FIELD, 10.14, 7.0, 1.08, "m", 0, 110),
+                    new EventDef("1500m", Type.TRACK, 0.03768, 480.0, 1.85, "s", 150, 400))),
+            new EventRegistry.ModeDef("HEP", List.of(
+                    new EventDef("100mHurdles", Type.TRACK, 9.23076, 26.7, 1.835, "s", 10, 30),
+                    new EventDef("highJump", Type.FIELD, 1.84523, 75.0, 1.348, "cm", 0, 300),
+                    new EventDef("shotPut", Type.FIELD, 56.0211, 1.5, 1.05, "m", 0, 30),
+                    new EventDef("200m", Type.TRACK, 4.99087, 42.5, 1.81, "s", 20, 100),
+                    new EventDef("longJump", Type.FIELD, 0.188807, 210.0, 1.41, "cm", 0, 1000),
+                    new EventDef("javelin", Type.FIELD, 15.9803, 3.8, 1.04, "m", 0, 110),
+                    new EventDef("800m", Type.TRACK, 0.11193, 254.0, 1.88, "s", 70, 250)))
     );
 
-    // Exakta gränser (inkl. dec & hep)
-    private final Map<String, double[]> decLimits = Map.ofEntries(
-            Map.entry("100m",        new double[]{5,   20}),
-            Map.entry("110mHurdles", new double[]{10,  30}),
-            Map.entry("400m",        new double[]{20, 100}),
-            Map.entry("1500m",       new double[]{150, 400}),
-            Map.entry("discus",      new double[]{0,   85}),
-            Map.entry("highJump",    new double[]{0,   300}),
-            Map.entry("javelin",     new double[]{0,   110}),
-            Map.entry("longJump",    new double[]{0,   1000}),
-            Map.entry("poleVault",   new double[]{0,   1000}),
-            Map.entry("shotPut",     new double[]{0,   30})
-    );
+    // Versions of the scoring tables. Version 1 is MODES; later ones are read from v<version>.csv
+    // files (ScoringTables format) in decathlon.scoring.tables-dir or added with define(). A version
+    // may change coefficients and limits, never the modes and events, so ordinals mean the same
+    // in all of them. Each competition scores with one version at a time.
+    private static final Pattern FILE = Pattern.compile("v([1-9][0-9]{0,8})\\.csv");
+    // Keeps a bad table from sizing a rank index in the gigabytes
+    private static final int MAX_TOTAL = 1_000_000;
 
-    private final Map<String, double[]> hepLimits = Map.ofEntries(
-            Map.entry("100mHurdles", new double[]{10, 30}),
-            Map.entry("200m",        new double[]{20, 100}),
-            Map.entry("800m",        new double[]{70, 250}),
-            Map.entry("highJump",    new double[]{0,  300}),
-            Map.entry("javelin",     new double[]{0,  110}),
-            Map.entry("longJump",    new double[]{0,  1000}),
-            Map.entry("shotPut",     new double[]{0,  30})
-    );
+    private final boolean useTables;
+    private final Path tablesDir;
+    private final Map<Integer, EventRegistry> versions = new ConcurrentHashMap<>();
+    private final ReentrantLock defining = new ReentrantLock();
+    // The version new competitions start with
+    private final EventRegistry registry;
+
+    public ScoringService(boolean useTables) {
+        this(useTables, "", 1);
+    }
+
+    // Precomputed points per mark, used instead of Math.pow when decathlon.scoring.tables=true
+    @Autowired
+    public ScoringService(@Value("${decathlon.scoring.tables:false}") boolean useTables,
+                          @Value("${decathlon.scoring.tables-dir:}") String tablesDir,
+                          @Value("${decathlon.scoring.version:1}") int version) {
+        this.useTables = useTables;
+        this.tablesDir = tablesDir.isBlank() ? null : Path.of(tablesDir);
+        versions.put(1, compile(1, MODES));
+        if (this.tablesDir != null && Files.isDirectory(this.tablesDir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(this.tablesDir, "v*.csv")) {
+                for (Path f : files) {
+                    Matcher m = FILE.matcher(f.getFileName().toString());
+                    if (!m.matches()) continue;
+                    int v = Integer.parseInt(m.group(1));
+                    if (v == 1) throw new IllegalStateException("Scoring tables version 1 is built in; remove " + f);
+                    versions.put(v, compile(v, ScoringTables.parse(Files.readString(f, StandardCharsets.UTF_8))));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read scoring tables in " + this.tablesDir, e);
+            }
+        }
+        registry = tables(version);
+    }
+
+    public EventRegistry registry() { return registry; }
+
+    public EventRegistry tables(int version) {
+        EventRegistry r = versions.get(version);
+        if (r == null) throw new IllegalArgumentException("Unknown scoring tables version " + version);
+        return r;
+    }
 
-    private void validate(String mode, String eventId, double raw) {
-        Map<String, double[]> limits = "HEP".equals(mode) ? hepLimits : decLimits;
-        double[] lm = limits.get(eventId);
-        if (lm != null) {
-            double lo = lm[0], hi = lm[1];
-            if (raw < lo) throw new IllegalArgumentException("Value too low");
-            if (raw > hi) throw new IllegalArgumentException("Value too high");
+    public List<Integer> versions() {
+        List<Integer> out = new ArrayList<>(versions.keySet());
+        Collections.sort(out);
+        return out;
+    }
+
+    // Adds a version, written to the tables directory first when there is one. Returns false when
+    // the version is already defined.
+    public boolean define(int version, List<EventRegistry.ModeDef> modes) throws IOException {
+        if (version < 1) throw new IllegalArgumentException("Version must be positive");
+        EventRegistry r = compile(version, modes);
+        defining.lock();
+        try {
+            if (versions.containsKey(version)) return false;
+            if (tablesDir != null) {
+                Files.createDirectories(tablesDir);
+                Path file = tablesDir.resolve("v" + version + ".csv");
+                Path tmp = tablesDir.resolve("v" + version + ".csv.tmp");
+                Files.writeString(tmp, ScoringTables.format(modes), StandardCharsets.UTF_8);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            versions.put(version, r);
+            return true;
+        } finally {
+            defining.unlock();
         }
     }
 
+    private EventRegistry compile(int version, List<EventRegistry.ModeDef> modes) {
+        boolean same = modes.size() == MODES.size();
+        for (int m = 0; same && m < modes.size(); m++) {
+            List<EventDef> have = modes.get(m).events(), base = MODES.get(m).events();
+            same = modes.get(m).id().equals(MODES.get(m).id()) && have.size() == base.size();
+            for (int i = 0; same && i < have.size(); i++) {
+                EventDef e = have.get(i), b = base.get(i);
+                same = e.id().equals(b.id()) && e.type() == b.type() && e.unit().equals(b.unit());
+            }
+        }
+        if (!same) {
+            throw new IllegalArgumentException("Scoring tables version " + version
+                    + " must have the modes and events of version 1, in order, with the same types and units");
+        }
+        // Everything is checked on the definitions, before any table or index is sized from them
+        for (EventRegistry.ModeDef m : modes) {
+            long maxTotal = 0;
+            for (EventDef e : m.events()) {
+                if (!(e.A() > 0 && e.C() > 0 && Double.isFinite(e.A()) && Double.isFinite(e.B()) && Double.isFinite(e.C())
+                        && Double.isFinite(e.min()) && Double.isFinite(e.max()) && e.min() < e.max() && e.min() >= 0)) {
+                    throw new IllegalArgumentException("Scoring tables version " + version + ": invalid coefficients or limits for "
+                            + m.id() + " " + e.id());
+                }
+                if (useTables && PointsTable.sizeOf(e) > PointsTable.MAX_SIZE) {
+                    throw new IllegalArgumentException("Scoring tables version " + version + ": the limits of " + m.id() + " " + e.id()
+                            + " span more than " + PointsTable.MAX_SIZE + " marks");
+                }
+                maxTotal += formula(e, e.type() == Type.TRACK ? e.min() : e.max());
+            }
+            if (maxTotal > MAX_TOTAL) {
+                throw new IllegalArgumentException("Scoring tables version " + version + ": " + m.id() + " totals can exceed " + MAX_TOTAL);
+            }
+        }
+        return new EventRegistry(version, modes, useTables);
+    }
+
     public int score(String mode, String eventId, double raw) {
-        Map<String, EventDef> m = "HEP".equals(mode) ? hep : dec;
-        EventDef e = m.get(eventId);
-        if (e == null) return 0;
-
-        validate(mode, eventId, raw);
-
-        double points;
-        if (e.type == Type.TRACK) {
-            double x = e.B - raw;
-            if (x <= 0) return 0;
-            points = e.A * Math.pow(x, e.C);
-        } else {
-            double x = raw - e.B;
-            if (x <= 0) return 0;
-            points = e.A * Math.pow(x, e.C);
+        return score(registry.event(registry.mode(mode), eventId), raw);
+    }
+
+    public int score(int event, double raw) {
+        return score(registry, event, raw);
+    }
+
+    // Points under the given version of the tables
+    public int score(EventRegistry r, int event, double raw) {
+        if (event == EventRegistry.UNKNOWN) return 0;
+        if (raw < r.lo[event]) throw new IllegalArgumentException("Value too low");
+        if (raw > r.hi[event]) throw new IllegalArgumentException("Value too high");
+
+        PointsTable t = r.tables[event];
+        if (t != null) {
+            int idx = t.indexOf(raw);
+            if (idx != PointsTable.OFF_GRID) return t.pointsAt(idx);
         }
-        return (int) Math.floor(points);
+        return formula(r.track[event], r.a[event], r.b[event], r.c[event], raw);
+    }
+
+    // The formula over a whole array of marks, all within the event's limits
+    interface Kernel {
+        int[] score(boolean track, double A, double B, double C, double[] raw);
+    }
+
+    // The Vector API is an incubator module; without it bulk scoring runs the scalar loop.
+    // VectorScoring is the one class compiled against the module (see pom.xml), so it is
+    // loaded by name rather than referenced.
+    static final Kernel VECTOR = vectorKernel();
+
+    private static Kernel vectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty() || Boolean.getBoolean("decathlon.scoring.scalar")) return null;
+        try {
+            return (Kernel) Class.forName("com.example.decathlon.core.VectorScoring").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load VectorScoring", e);
+        }
+    }
+
+    public int[] scoreBulk(String mode, String eventId, double[] raw) {
+        return scoreBulk(registry.event(registry.mode(mode), eventId), raw);
+    }
+
+    // Points for every mark of one event, equal to score(event, raw[i]) for each i. Rejects the
+    // whole array if any mark is outside the event's limits.
+    public int[] scoreBulk(int event, double[] raw) {
+        return scoreBulk(registry, event, raw);
+    }
+
+    public int[] scoreBulk(EventRegistry r, int event, double[] raw) {
+        if (event == EventRegistry.UNKNOWN) return new int[raw.length];
+        double lo = r.lo[event], hi = r.hi[event];
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] < lo) throw new IllegalArgumentException("Value too low at index " + i);
+            if (raw[i] > hi) throw new IllegalArgumentException("Value too high at index " + i);
+        }
+        return VECTOR != null ? VECTOR.score(r.track[event], r.a[event], r.b[event], r.c[event], raw) : scoreBulkScalar(r, event, raw);
+    }
+
+    static int[] scoreBulkScalar(EventRegistry r, int event, double[] raw) {
+        boolean track = r.track[event];
+        double A = r.a[event], B = r.b[event], C = r.c[event];
+        PointsTable t = r.tables[event];
+        int[] out = new int[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            int idx = t == null ? PointsTable.OFF_GRID : t.indexOf(raw[i]);
+            out[i] = idx != PointsTable.OFF_GRID ? t.pointsAt(idx) : formula(track, A, B, C, raw[i]);
+        }
+        return out;
+    }
+
+    static int formula(EventDef e, double raw) {
+        return formula(e.type() == Type.TRACK, e.A(), e.B(), e.C(), raw);
+    }
+
+    static int formula(boolean track, double A, double B, double C, double raw) {
+        double x = track ? B - raw : raw - B;
+        if (x <= 0) return 0;
+        return (int) Math.floor(A * Math.pow(x, C));
     }
 }
@@ -0,0 +1,60 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.core.EventRegistry.ModeDef;
+import com.example.decathlon.core.ScoringService.EventDef;
+import com.example.decathlon.core.ScoringService.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Scoring tables as text: a "mode,event,type,A,B,C,unit,min,max" CSV with one line per event,
+// modes and events in ordinal order. This is the format of table files and of the tables API.
+public final class ScoringTables {
+    static final String HEADER = "mode,event,type,A,B,C,unit,min,max";
+
+    private ScoringTables() {}
+
+    public static String format(List<ModeDef> modes) {
+        StringBuilder out = new StringBuilder(HEADER).append('\n');
+        for (ModeDef m : modes) {
+            for (EventDef e : m.events()) {
+                out.append(m.id()).append(',').append(e.id()).append(',').append(e.type()).append(',')
+                        .append(e.A()).append(',').append(e.B()).append(',').append(e.C()).append(',')
+                        .append(e.unit()).append(',').append(e.min()).append(',').append(e.max()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    // Blank lines and the header line are skipped; a mode's events must be on consecutive lines
+    public static List<ModeDef> parse(String csv) {
+        List<ModeDef> modes = new ArrayList<>();
+        String mode = null;
+        List<EventDef> events = null;
+        String[] lines = csv.split("\r?\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n].trim();
+            if (line.isEmpty() || line.equals(HEADER)) continue;
+            String[] f = line.split(",", -1);
+            if (f.length != 9) throw new IllegalArgumentException("Line " + (n + 1) + ": expected 9 fields, got " + f.length);
+            for (int i = 0; i < f.length; i++) f[i] = f[i].trim();
+            if (!f[0].equals(mode)) {
+                for (ModeDef m : modes) {
+                    if (m.id().equals(f[0])) throw new IllegalArgumentException("Line " + (n + 1) + ": events of mode " + f[0] + " are not consecutive");
+                }
+                mode = f[0];
+                events = new ArrayList<>();
+                modes.add(new ModeDef(mode, events));
+            }
+            try {
+                events.add(new EventDef(f[1], Type.valueOf(f[2]), Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+                        Double.parseDouble(f[5]), f[6], Double.parseDouble(f[7]), Double.parseDouble(f[8])));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": " + e.getMessage());
+            }
+        }
+        List<ModeDef> out = new ArrayList<>(modes.size());
+        for (ModeDef m : modes) out.add(new ModeDef(m.id(), List.copyOf(m.events())));
+        return out;
+    }
+}
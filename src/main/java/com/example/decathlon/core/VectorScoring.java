@@ -0,0 +1,46 @@
+package com.example.decathlon.core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// The points formula over whole vectors of marks. The vector pow may differ from Math.pow in the
+// last bits, which only matters when A * pow lands within a hair of a whole number; those lanes
+// are recomputed with the scalar formula, so every result equals ScoringService.formula.
+// Only loaded, by ScoringService, when the jdk.incubator.vector module is present
+// (--add-modules jdk.incubator.vector).
+final class VectorScoring implements ScoringService.Kernel {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(D.vectorBitSize() / 2));
+    // Far above the few ulps (~1e-13 at the largest totals) the vector pow can be off by
+    private static final double NEAR = 1e-9;
+
+    @Override
+    public int[] score(boolean track, double A, double B, double C, double[] raw) {
+        int[] out = new int[raw.length];
+        int i = 0;
+        for (int end = D.loopBound(raw.length); i < end; i += D.length()) {
+            DoubleVector v = DoubleVector.fromArray(D, raw, i);
+            DoubleVector x = track ? v.neg().add(B) : v.sub(B);
+            VectorMask<Double> scoring = x.compare(VectorOperators.GT, 0);
+            // Lanes that score 0 are left at 1 so pow stays finite; they are zeroed below
+            DoubleVector y = x.blend(1, scoring.not()).lanewise(VectorOperators.POW, C).mul(A).blend(0, scoring.not());
+            // y >= 0, so truncating is floor
+            LongVector whole = (LongVector) y.convert(VectorOperators.D2L, 0);
+            DoubleVector floor = (DoubleVector) whole.convert(VectorOperators.L2D, 0);
+            VectorMask<Double> near = y.sub(floor).lt(NEAR).or(floor.add(1).sub(y).lt(NEAR)).and(scoring);
+            ((IntVector) whole.convertShape(VectorOperators.L2I, I, 0)).intoArray(out, i);
+            if (near.anyTrue()) {
+                for (int lane = 0; lane < D.length(); lane++) {
+                    if (near.laneIsSet(lane)) out[i + lane] = ScoringService.formula(track, A, B, C, raw[i + lane]);
+                }
+            }
+        }
+        for (; i < raw.length; i++) out[i] = ScoringService.formula(track, A, B, C, raw[i]);
+        return out;
+    }
+}
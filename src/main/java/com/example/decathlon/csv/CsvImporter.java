@@ -0,0 +1,269 @@
+package com.example.decathlon.csv;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.dto.ImportSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Bulk import of "name,mode,event,raw" lines. The file is memory-mapped and split into
+// line-aligned chunks that are parsed in parallel; marks are parsed as fixed-point numbers
+// straight from the bytes. The calling thread scores the parsed chunks in file order through
+// CompetitionService.scoreBatch, so a later row for the same event wins and new competitors get
+// their ids in the order they first appear, however the parsing threads are scheduled.
+// Fields are not quoted, so names cannot contain commas. Rows without a name or a number, or with
+// an unknown mode or event, are counted as rejected.
+public class CsvImporter {
+    // Chunks are mapped one at a time, so this also bounds a single mapping
+    private static final long MAX_CHUNK = 64L << 20;
+    private static final double[] POW10 = {1, 10, 100, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final CompetitionService comp;
+    private final EventRegistry registry;
+    private final byte[][] modeIds;
+    private final byte[][][] eventIds;
+
+    public CsvImporter(CompetitionService comp) {
+        this.comp = comp;
+        this.registry = comp.registry();
+        modeIds = new byte[registry.modeCount()][];
+        eventIds = new byte[registry.modeCount()][][];
+        for (int m = 0; m < modeIds.length; m++) {
+            modeIds[m] = registry.modeId(m).getBytes(StandardCharsets.UTF_8);
+            eventIds[m] = new byte[registry.eventCount(m)][];
+            for (int i = 0; i < eventIds[m].length; i++) {
+                eventIds[m][i] = registry.eventId(registry.firstEvent(m) + i).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    public ImportSummary importFile(Path file, int threads, int batchSize) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[3]; // rows, scored, rejected
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            List<long[]> chunks = split(ch, size, Math.max(1, threads) * 4L);
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+            try {
+                // Parsing runs at most this many chunks ahead of scoring
+                int window = Math.max(1, threads) * 2;
+                ArrayDeque<Future<Parsed>> ahead = new ArrayDeque<>(window);
+                int next = 0;
+                for (int i = 0; i < chunks.size(); i++) {
+                    for (; next < chunks.size() && next < i + window; next++) ahead.add(parse(pool, ch, chunks.get(next)));
+                    Parsed p = ahead.remove().get();
+                    counts[0] += p.rows();
+                    counts[2] += p.rejected();
+                    for (int from = 0; from < p.marks().size(); from += batchSize) {
+                        flush(p.marks().subList(from, Math.min(p.marks().size(), from + batchSize)), counts);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return ImportSummary.of(counts[0], counts[1], counts[2], System.nanoTime() - start);
+    }
+
+    // [start, end) byte ranges, each ending just after a newline (or at end of file)
+    private static List<long[]> split(FileChannel ch, long size, long parts) throws IOException {
+        long target = Math.min(MAX_CHUNK, Math.max(1, (size + parts - 1) / parts));
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer one = ByteBuffer.allocate(1);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + target);
+            while (end < size) {
+                one.clear();
+                ch.read(one, end - 1);
+                if (one.get(0) == '\n') break;
+                end++;
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    // A chunk's marks in file order, with how many rows it read and rejected
+    private record Parsed(List<CompetitionService.Mark> marks, long rows, long rejected) {}
+
+    private Future<Parsed> parse(ExecutorService pool, FileChannel ch, long[] chunk) {
+        return pool.submit(() -> parseChunk(ch.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]), chunk[0] == 0));
+    }
+
+    private Parsed parseChunk(MappedByteBuffer buf, boolean first) {
+        long rows = 0, rejected = 0;
+        List<CompetitionService.Mark> marks = new ArrayList<>();
+        NameCache names = new NameCache();
+        int[] field = new int[8]; // start/end of the four fields
+        int pos = 0, limit = buf.limit();
+        boolean header = first;
+        while (pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') lineEnd++;
+            int end = lineEnd > pos && buf.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            int n = fields(buf, pos, end, field);
+            boolean skipHeader = header;
+            header = false;
+            if (n > 0) {
+                double raw = n == 4 ? parseMark(buf, field[6], field[7]) : Double.NaN;
+                if (!(skipHeader && Double.isNaN(raw))) {
+                    rows++;
+                    int mode = n == 4 ? mode(buf, field[2], field[3]) : -1;
+                    int event = mode < 0 ? EventRegistry.UNKNOWN : event(buf, mode, field[4], field[5]);
+                    if (Double.isNaN(raw) || field[1] == field[0] || event == EventRegistry.UNKNOWN) {
+                        rejected++;
+                    } else {
+                        marks.add(new CompetitionService.Mark(names.get(buf, field[0], field[1]), event, raw));
+                    }
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        return new Parsed(marks, rows, rejected);
+    }
+
+    private void flush(List<CompetitionService.Mark> batch, long[] counts) {
+        for (CompetitionService.Outcome o : comp.scoreBatch(batch)) counts[o.error() == null ? 1 : 2]++;
+    }
+
+    // Splits [from, to) on commas into trimmed field bounds; returns the field count (0 for blank lines)
+    private static int fields(MappedByteBuffer buf, int from, int to, int[] field) {
+        int n = 0, s = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buf.get(i) == ',') {
+                if (n == 4) return 5;
+                int a = s, b = i;
+                while (a < b && buf.get(a) == ' ') a++;
+                while (b > a && buf.get(b - 1) == ' ') b--;
+                field[2 * n] = a;
+                field[2 * n + 1] = b;
+                n++;
+                s = i + 1;
+            }
+        }
+        return n == 1 && field[0] == field[1] ? 0 : n;
+    }
+
+    // Fixed-point parse of digits with an optional decimal point; NaN if not a plain number.
+    // mantissa / 10^k with both exact gives the same double as Double.parseDouble.
+    static double parseMark(MappedByteBuffer buf, int from, int to) {
+        long mantissa = 0;
+        int scale = -1, digits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (++digits > 15) return Double.NaN;
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale >= 0) scale++;
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        return scale <= 0 ? mantissa : mantissa / POW10[scale];
+    }
+
+    // -1 for an unknown mode
+    private int mode(MappedByteBuffer buf, int from, int to) {
+        for (int m = 0; m < modeIds.length; m++) {
+            if (matches(buf, from, to, modeIds[m])) return m;
+        }
+        return -1;
+    }
+
+    private int event(MappedByteBuffer buf, int mode, int from, int to) {
+        byte[][] ids = eventIds[mode];
+        for (int i = 0; i < ids.length; i++) {
+            if (matches(buf, from, to, ids[i])) return registry.firstEvent(mode) + i;
+        }
+        return EventRegistry.UNKNOWN;
+    }
+
+    private static boolean matches(MappedByteBuffer buf, int from, int to, byte[] id) {
+        if (to - from != id.length) return false;
+        for (int i = 0; i < id.length; i++) {
+            if (buf.get(from + i) != id[i]) return false;
+        }
+        return true;
+    }
+
+    // Per-chunk open-addressing cache so each distinct name is decoded to a String once
+    private static final class NameCache {
+        private byte[][] keys = new byte[1024][];
+        private String[] values = new String[1024];
+        private int size;
+
+        String get(MappedByteBuffer buf, int from, int to) {
+            int h = 1;
+            for (int i = from; i < to; i++) h = 31 * h + buf.get(i);
+            int mask = keys.length - 1;
+            for (int i = mix(h) & mask; ; i = (i + 1) & mask) {
+                byte[] k = keys[i];
+                if (k == null) break;
+                if (matches(buf, from, to, k)) return values[i];
+            }
+            byte[] key = new byte[to - from];
+            buf.get(from, key);
+            String name = new String(key, StandardCharsets.UTF_8);
+            if (++size * 2 > keys.length) grow();
+            put(key, name);
+            return name;
+        }
+
+        private void put(byte[] key, String name) {
+            int mask = keys.length - 1;
+            int i = mix(Arrays.hashCode(key)) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = name;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int mix(int h) { return h ^ (h >>> 16); }
+    }
+
+    // Usage: CsvImporter <results.csv> [threads]
+    // Imports into a fresh in-memory competition and prints the summary and rows per second.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CsvImporter <results.csv> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        CompetitionService comp = new CompetitionService(new ScoringService(true), "concurrent");
+        ImportSummary s = new CsvImporter(comp).importFile(Path.of(args[0]), threads, 1000);
+        System.out.printf("%d rows (%d scored, %d rejected) in %d ms, %.0f rows/s, %d competitors%n",
+                s.rows(), s.scored(), s.rejected(), s.millis(), s.rowsPerSecond(), comp.count());
+    }
+}
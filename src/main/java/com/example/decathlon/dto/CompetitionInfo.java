@@ -0,0 +1,4 @@
+package com.example.decathlon.dto;
+
+public record CompetitionInfo(String id, int competitors, long marks, int tablesVersion, long estimatedBytes,
+                              long requests, long errors, double meanMillis, double maxMillis) {}
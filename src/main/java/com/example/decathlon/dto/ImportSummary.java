@@ -0,0 +1,7 @@
+package com.example.decathlon.dto;
+
+public record ImportSummary(long rows, long scored, long rejected, long millis, double rowsPerSecond) {
+    public static ImportSummary of(long rows, long scored, long rejected, long nanos) {
+        return new ImportSummary(rows, scored, rejected, nanos / 1_000_000, nanos == 0 ? 0 : rows * 1e9 / nanos);
+    }
+}
@@ -1,3 +1,4 @@
 package com.example.decathlon.dto;
 
-public record ScoreReq(String name, String mode, String event, double raw) {}
+// Addresses the competitor by id (from POST /competitors) when id is set, otherwise by name
+public record ScoreReq(String name, Integer id, String mode, String event, double raw) {}
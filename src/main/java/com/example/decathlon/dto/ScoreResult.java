@@ -0,0 +1,6 @@
+package com.example.decathlon.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ScoreResult(Integer points, String error) {}
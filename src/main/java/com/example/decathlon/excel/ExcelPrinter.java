@@ -3,59 +3,141 @@ package com.example.decathlon.excel;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public class ExcelPrinter {
 
-	private XSSFWorkbook workbook;
+	// Rows looked at per sheet when estimating column widths in streaming mode
+	public static final int SAMPLE_ROWS = 200;
+	private static final int MAX_WIDTH = 255 * 256;
+
+	private Workbook workbook;
 	private String excelName;
+	private boolean streaming;
+	private Map<String, SheetState> sheets = new LinkedHashMap<>();
 
 	public ExcelPrinter(String name) throws IOException {
 		workbook = new XSSFWorkbook();
 		excelName = name;
 	}
 
+	// Streaming mode: only the last rowWindow rows of each sheet are kept in memory, the rest
+	// are flushed to temporary files. Column widths are estimated from the first SAMPLE_ROWS rows.
+	public ExcelPrinter(String name, int rowWindow) throws IOException {
+		SXSSFWorkbook wb = new SXSSFWorkbook(rowWindow);
+		wb.setCompressTempFiles(true);
+		workbook = wb;
+		excelName = name;
+		streaming = true;
+	}
+
+	// Appends the rows to sheetName like addRow, so the two can be mixed on one sheet
 	public void add(Object[][] data, String sheetName) {
-		XSSFSheet sheet = workbook.createSheet(sheetName);
-		int rowCount = 0;
+		sheet(sheetName);
 		for (Object[] aBook : data) {
-			Row row = sheet.createRow(rowCount++);
-			int columnCount = 0;
-			for (Object field : aBook) {
-				Cell cell = row.createCell(columnCount++);
-				if (field instanceof String) {
-					cell.setCellValue((String) field);
-				} else if (field instanceof Integer) {
-					cell.setCellValue((Integer) field);
-				} else if (field instanceof Double) {
-					cell.setCellValue((Double) field);
-				} else if (field != null) {
-					cell.setCellValue(field.toString());
-				}
-			}
+			addRow(sheetName, aBook);
+		}
+	}
+
+	// Appends one row to sheetName, creating the sheet on first use. Rows for several sheets
+	// can be interleaved, so a whole book is written in a single pass over the results.
+	public void addRow(String sheetName, Object... fields) {
+		SheetState st = sheet(sheetName);
+		Row row = st.sheet.createRow(st.rowCount++);
+		fill(row, fields);
+		st.columns = Math.max(st.columns, fields.length);
+		if (streaming && st.rowCount <= SAMPLE_ROWS) {
+			st.sample(fields);
 		}
-		if (data.length > 0) {
-			for (int i = 0; i < data[0].length; i++) {
-				sheet.autoSizeColumn(i);
+	}
+
+	private SheetState sheet(String sheetName) {
+		return sheets.computeIfAbsent(sheetName, n -> new SheetState(workbook.createSheet(n)));
+	}
+
+	private static void fill(Row row, Object[] fields) {
+		int columnCount = 0;
+		for (Object field : fields) {
+			Cell cell = row.createCell(columnCount++);
+			if (field instanceof String) {
+				cell.setCellValue((String) field);
+			} else if (field instanceof Integer) {
+				cell.setCellValue((Integer) field);
+			} else if (field instanceof Double) {
+				cell.setCellValue((Double) field);
+			} else if (field != null) {
+				cell.setCellValue(field.toString());
 			}
 		}
 	}
 
 	public void write() throws IOException {
-		try (FileOutputStream out = new FileOutputStream("C:/Eclipse/resultat_" + excelName + ".xlsx")) {
-			workbook.write(out);
-		}
-		workbook.close();
+		write(new File("C:/Eclipse/resultat_" + excelName + ".xlsx"));
 	}
 
 	public void write(File file) throws IOException {
 		try (FileOutputStream out = new FileOutputStream(file)) {
+			write(out);
+		}
+	}
+
+	public void write(OutputStream out) throws IOException {
+		for (SheetState st : sheets.values()) {
+			if (streaming) {
+				st.applyWidths();
+			} else {
+				// Every row is still in memory, so the columns can be measured exactly
+				for (int i = 0; i < st.columns; i++) {
+					st.sheet.autoSizeColumn(i);
+				}
+			}
+		}
+		try {
 			workbook.write(out);
+		} finally {
+			if (workbook instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+			workbook.close();
+		}
+	}
+
+	private static class SheetState {
+		final Sheet sheet;
+		int rowCount;
+		int columns;
+		int[] maxChars = new int[0];
+
+		SheetState(Sheet sheet) {
+			this.sheet = sheet;
+		}
+
+		void sample(Object[] fields) {
+			if (fields.length > maxChars.length) {
+				maxChars = Arrays.copyOf(maxChars, fields.length);
+			}
+			for (int i = 0; i < fields.length; i++) {
+				if (fields[i] != null) {
+					maxChars[i] = Math.max(maxChars[i], fields[i].toString().length());
+				}
+			}
+		}
+
+		// Roughly what autoSizeColumn gives for the default font: 256 units per character plus padding
+		void applyWidths() {
+			for (int i = 0; i < maxChars.length; i++) {
+				sheet.setColumnWidth(i, Math.min(MAX_WIDTH, (maxChars[i] + 2) * 256));
+			}
 		}
-		workbook.close();
 	}
 }
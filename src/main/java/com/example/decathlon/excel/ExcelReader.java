@@ -1,32 +1,248 @@
 package com.example.decathlon.excel;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.dto.ImportSummary;
+
+public class ExcelReader implements Closeable {
+
+	// Workbooks opened by getCellInfo, kept until close() so each file is parsed once
+	private final Map<File, XSSFWorkbook> workbooks = new HashMap<>();
+	private final DataFormatter dataFormatter = new DataFormatter();
+
+	public interface RowHandler {
+		// cells is reused between rows; only the first cellCount entries belong to this row
+		void row(int rowNumber, String[] cells, int cellCount);
+	}
 
-public class ExcelReader {
-	
 	public String getCellInfo(String excelName, int sheetNumber, int rowNumber, int colNumber) throws IOException {
-		File excelfile = new File("C:/Eclipse/resultat_" + excelName + ".xlsx");
-		FileInputStream fis = new FileInputStream(excelfile);
-		
-		@SuppressWarnings("resource")
-		XSSFWorkbook wb = new XSSFWorkbook(fis);
+		return getCellInfo(new File("C:/Eclipse/resultat_" + excelName + ".xlsx"), sheetNumber, rowNumber, colNumber);
+	}
+
+	public String getCellInfo(File excelfile, int sheetNumber, int rowNumber, int colNumber) throws IOException {
+		XSSFWorkbook wb = workbooks.get(excelfile);
+		if (wb == null) {
+			try {
+				wb = new XSSFWorkbook(OPCPackage.open(excelfile, PackageAccess.READ));
+			} catch (InvalidFormatException e) {
+				throw new IOException(e);
+			}
+			workbooks.put(excelfile, wb);
+		}
 
 		Sheet sheet = wb.getSheetAt(sheetNumber);
 		Row row = sheet.getRow(rowNumber);
-        Cell cell = row.getCell(colNumber);
-				
-        DataFormatter dataFormatter = new DataFormatter();
+		if (row == null) {
+			return "";
+		}
+		Cell cell = row.getCell(colNumber);
 		return dataFormatter.formatCellValue(cell);
-		
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (XSSFWorkbook wb : workbooks.values()) {
+			wb.close();
+		}
+		workbooks.clear();
+	}
+
+	// Reads one sheet with the SAX event API, without building the workbook in memory.
+	// Cells arrive unformatted: numbers as stored (e.g. "10.23"), strings resolved.
+	public void forEachRow(File excelfile, int sheetNumber, RowHandler handler) throws IOException {
+		try (OPCPackage pkg = OPCPackage.open(excelfile, PackageAccess.READ)) {
+			ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+			XSSFReader reader = new XSSFReader(pkg);
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			for (int i = 0; sheets.hasNext(); i++) {
+				try (InputStream in = sheets.next()) {
+					if (i == sheetNumber) {
+						XMLReader parser = XMLHelper.newXMLReader();
+						parser.setContentHandler(new RowCollector(handler, strings));
+						parser.parse(new InputSource(in));
+						return;
+					}
+				}
+			}
+			throw new IOException("No sheet " + sheetNumber + " in " + excelfile);
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+	}
+
+	// Imports (name, mode, event, raw) rows from the first sheet, scored in batches of batchSize.
+	// The first row is treated as a header when its raw column is not a number; after it, rows
+	// without a number or a name, or with an unknown mode or event, count as rejected, as in
+	// CsvImporter.
+	public ImportSummary importResults(File excelfile, CompetitionService comp, int batchSize) throws IOException {
+		EventRegistry registry = comp.registry();
+		List<CompetitionService.Mark> batch = new ArrayList<>(batchSize);
+		long[] counts = new long[3]; // rows, scored, rejected
+		boolean[] first = {true};
+		long start = System.nanoTime();
+		forEachRow(excelfile, 0, (rowNumber, cells, cellCount) -> {
+			if (cellCount == 0) {
+				return;
+			}
+			double raw;
+			try {
+				raw = cellCount < 4 || cells[3] == null ? Double.NaN : Double.parseDouble(cells[3].replace(',', '.'));
+			} catch (NumberFormatException e) {
+				raw = Double.NaN;
+			}
+			boolean header = first[0];
+			first[0] = false;
+			if (header && Double.isNaN(raw)) {
+				return;
+			}
+			counts[0]++;
+			String name = cells[0] == null ? "" : cells[0].trim();
+			String modeId = cells[1] == null ? "" : cells[1].trim();
+			int mode = registry.mode(modeId);
+			// mode() falls back to the first mode for an unknown id
+			int event = registry.modeId(mode).equals(modeId) && cells[2] != null
+					? registry.event(mode, cells[2].trim())
+					: EventRegistry.UNKNOWN;
+			if (Double.isNaN(raw) || name.isEmpty() || event == EventRegistry.UNKNOWN) {
+				counts[2]++;
+				return;
+			}
+			batch.add(new CompetitionService.Mark(name, event, raw));
+			if (batch.size() == batchSize) {
+				flush(comp, batch, counts);
+			}
+		});
+		flush(comp, batch, counts);
+		return ImportSummary.of(counts[0], counts[1], counts[2], System.nanoTime() - start);
+	}
+
+	private static void flush(CompetitionService comp, List<CompetitionService.Mark> batch, long[] counts) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		for (CompetitionService.Outcome o : comp.scoreBatch(batch)) {
+			counts[o.error() == null ? 1 : 2]++;
+		}
+		batch.clear();
+	}
+
+	// Minimal SAX handler for sheet XML: collects <v> and inline string values per row, resolving
+	// shared strings by index. Cheaper than XSSFSheetXMLHandler, which formats every cell.
+	private static class RowCollector extends DefaultHandler {
+		private final RowHandler handler;
+		private final SharedStrings strings;
+		private final StringBuilder text = new StringBuilder();
+		private String[] cells = new String[8];
+		private int cellCount;
+		// Zero-based, like the r attribute less one
+		private int rowNumber = -1;
+		private int col;
+		private String type;
+		private boolean inValue;
+
+		RowCollector(RowHandler handler, SharedStrings strings) {
+			this.handler = handler;
+			this.strings = strings;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attrs) {
+			switch (localName) {
+				case "row" -> {
+					String r = attrs.getValue("r");
+					rowNumber = r == null ? rowNumber + 1 : Integer.parseInt(r) - 1;
+					cellCount = 0;
+					col = 0;
+				}
+				case "c" -> {
+					String r = attrs.getValue("r");
+					col = r == null ? cellCount : column(r);
+					type = attrs.getValue("t");
+				}
+				case "v", "t" -> {
+					inValue = true;
+					text.setLength(0);
+				}
+				default -> { }
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inValue) {
+				text.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			switch (localName) {
+				case "v", "t" -> {
+					inValue = false;
+					String value = "s".equals(type)
+							? strings.getItemAt(Integer.parseInt(text, 0, text.length(), 10)).getString()
+							: text.toString();
+					set(col, value);
+				}
+				case "row" -> handler.row(rowNumber, cells, cellCount);
+				default -> { }
+			}
+		}
+
+		private void set(int col, String value) {
+			if (col >= cells.length) {
+				cells = Arrays.copyOf(cells, Math.max(col + 1, cells.length * 2));
+			}
+			for (int i = cellCount; i < col; i++) {
+				cells[i] = null;
+			}
+			cells[col] = value;
+			cellCount = Math.max(cellCount, col + 1);
+		}
+
+		// Zero-based column of a reference such as "C12"
+		private static int column(String ref) {
+			int col = 0;
+			for (int i = 0; i < ref.length(); i++) {
+				char ch = ref.charAt(i);
+				if (ch < 'A' || ch > 'Z') {
+					break;
+				}
+				col = col * 26 + (ch - 'A' + 1);
+			}
+			return col - 1;
+		}
 	}
 
 }
@@ -0,0 +1,224 @@
+package com.example.decathlon.persist;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Compact binary image of a competition: every competitor in registration order with its points
+// and marks per mode, the scoring tables version the points were computed with, and the
+// write-ahead log position the image covers, with the id of that log. Written through a memory mapping into a
+// temp file that is renamed over the previous checkpoint, so a crash mid-write keeps the old one.
+//
+// File: "DCKP" + int version + long lsn + int crc32 of everything after it, then long log id,
+// long start of the log's last record before lsn, int tables version, the layout (byte modes, per mode byte+utf8 id, byte events, byte+utf8 id per event),
+// int competitors, and per competitor int id, unsigned short+utf8 name, then per mode an int mask of
+// scored events and for each of them int points and int mark, followed by double mark when the
+// int is OFF_GRID.
+public final class Checkpoint {
+    // points and marks are indexed by event ordinal across all modes; bit i of masks[m] marks
+    // event i of mode m as scored. Marks are in hundredths of the event's unit, or OFF_GRID with
+    // the mark in exact, which is null when no mark is OFF_GRID.
+    public record Entry(int id, String name, int[] masks, int[] points, int[] marks, double[] exact) {}
+
+    public static final int OFF_GRID = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x44434b50; // "DCKP"
+    private static final int VERSION = 4;
+    private static final int HEADER = 20;
+
+    private final MappedByteBuffer data;
+    private final long lsn;
+    private final long logId;
+    private final long lastRecord;
+    private final int tables;
+    private final int competitors;
+    private final int[] eventCounts;
+    private final int body;
+
+    private Checkpoint(MappedByteBuffer data, long lsn, long logId, long lastRecord, int tables, int competitors, int[] eventCounts, int body) {
+        this.data = data;
+        this.lsn = lsn;
+        this.logId = logId;
+        this.lastRecord = lastRecord;
+        this.tables = tables;
+        this.competitors = competitors;
+        this.eventCounts = eventCounts;
+        this.body = body;
+    }
+
+    public long lsn() { return lsn; }
+
+    public long logId() { return logId; }
+
+    // The log position this checkpoint covers, for WriteAheadLog.covers and open
+    public WriteAheadLog.Position position() { return new WriteAheadLog.Position(lsn, lastRecord); }
+
+    public int tables() { return tables; }
+
+    public int competitors() { return competitors; }
+
+    public long bytes() { return data.capacity(); }
+
+    // Maps file; null when there is no checkpoint, it is damaged (entries are walked once, so one
+    // an older build wrote with a wrapped name length is caught here), or it was written for other
+    // modes or events. events[m] lists the event ids of mode m in ordinal order.
+    public static Checkpoint load(Path file, String[] modes, String[][] events) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER || ch.size() > Integer.MAX_VALUE) return null;
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) return null;
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(HEADER, data.capacity() - HEADER));
+        if ((int) crc.getValue() != data.getInt(16)) return null;
+
+        ByteBuffer in = data.duplicate().position(HEADER);
+        long logId = in.getLong();
+        long lastRecord = in.getLong();
+        int tables = in.getInt();
+        if (in.get() != modes.length) return null;
+        int[] counts = new int[modes.length];
+        for (int m = 0; m < modes.length; m++) {
+            if (!modes[m].equals(string(in, in.get() & 0xff))) return null;
+            counts[m] = in.get();
+            if (counts[m] != events[m].length) return null;
+            for (int i = 0; i < counts[m]; i++) {
+                if (!events[m][i].equals(string(in, in.get() & 0xff))) return null;
+            }
+        }
+        int competitors = in.getInt();
+        int body = in.position();
+        try {
+            for (int i = 0; i < competitors; i++) skipEntry(in, counts);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+        if (in.hasRemaining()) return null;
+        return new Checkpoint(data, data.getLong(8), logId, lastRecord, tables, competitors, counts, body);
+    }
+
+    // Moves past one entry, checking it can be read back
+    private static void skipEntry(ByteBuffer in, int[] counts) {
+        in.position(in.position() + 4);
+        int name = in.getShort() & 0xffff;
+        in.position(in.position() + name);
+        for (int count : counts) {
+            int mask = in.getInt();
+            if (count < 32 && mask >>> count != 0) throw new IllegalArgumentException("Unknown event in mask");
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                in.getInt();
+                if (in.getInt() == OFF_GRID) in.getDouble();
+            }
+        }
+    }
+
+    // Entries in the order they were written; arrays are fresh for every entry
+    public void forEach(Consumer<Entry> sink) {
+        int total = Arrays.stream(eventCounts).sum();
+        ByteBuffer in = data.duplicate().position(body);
+        for (int i = 0; i < competitors; i++) {
+            int id = in.getInt();
+            String name = string(in, in.getShort() & 0xffff);
+            int[] masks = new int[eventCounts.length];
+            int[] points = new int[total];
+            int[] marks = new int[total];
+            double[] exact = null;
+            for (int m = 0, first = 0; m < eventCounts.length; first += eventCounts[m++]) {
+                masks[m] = in.getInt();
+                for (int bits = masks[m]; bits != 0; bits &= bits - 1) {
+                    int ev = first + Integer.numberOfTrailingZeros(bits);
+                    points[ev] = in.getInt();
+                    marks[ev] = in.getInt();
+                    if (marks[ev] == OFF_GRID) {
+                        if (exact == null) exact = new double[total];
+                        exact[ev] = in.getDouble();
+                    }
+                }
+            }
+            sink.accept(new Entry(id, name, masks, points, marks, exact));
+        }
+    }
+
+    // Returns the size of the written file
+    public static long write(Path file, long logId, WriteAheadLog.Position at, int tables, String[] modes, String[][] events,
+                             List<Entry> entries) throws IOException {
+        byte[][] modeIds = new byte[modes.length][];
+        byte[][][] eventIds = new byte[modes.length][][];
+        long size = HEADER + 8 + 8 + 4 + 1 + 4;
+        for (int m = 0; m < modes.length; m++) {
+            modeIds[m] = modes[m].getBytes(StandardCharsets.UTF_8);
+            eventIds[m] = new byte[events[m].length][];
+            size += 2 + modeIds[m].length;
+            for (int i = 0; i < events[m].length; i++) {
+                eventIds[m][i] = events[m][i].getBytes(StandardCharsets.UTF_8);
+                size += 1 + eventIds[m][i].length;
+            }
+        }
+        byte[][] names = new byte[entries.size()][];
+        for (int i = 0; i < names.length; i++) {
+            Entry e = entries.get(i);
+            names[i] = e.name().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > 0xffff) throw new IllegalArgumentException("Name too long for a checkpoint: " + names[i].length + " bytes");
+            size += 4 + 2 + names[i].length + 4L * modes.length;
+            for (int m = 0, first = 0; m < modes.length; first += events[m++].length) {
+                for (int bits = e.masks()[m]; bits != 0; bits &= bits - 1) {
+                    size += e.marks()[first + Integer.numberOfTrailingZeros(bits)] == OFF_GRID ? 16 : 8;
+                }
+            }
+        }
+        if (size > Integer.MAX_VALUE) throw new IOException("Checkpoint too large: " + size + " bytes");
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putLong(at.lsn()).putInt(0);
+            out.putLong(logId).putLong(at.lastRecord()).putInt(tables).put((byte) modes.length);
+            for (int m = 0; m < modes.length; m++) {
+                out.put((byte) modeIds[m].length).put(modeIds[m]).put((byte) eventIds[m].length);
+                for (byte[] id : eventIds[m]) out.put((byte) id.length).put(id);
+            }
+            out.putInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                Entry e = entries.get(i);
+                out.putInt(e.id()).putShort((short) names[i].length).put(names[i]);
+                for (int m = 0, first = 0; m < modes.length; first += events[m++].length) {
+                    out.putInt(e.masks()[m]);
+                    for (int bits = e.masks()[m]; bits != 0; bits &= bits - 1) {
+                        int ev = first + Integer.numberOfTrailingZeros(bits);
+                        out.putInt(e.points()[ev]).putInt(e.marks()[ev]);
+                        if (e.marks()[ev] == OFF_GRID) out.putDouble(e.exact()[ev]);
+                    }
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(out.slice(HEADER, (int) size - HEADER));
+            out.putInt(16, (int) crc.getValue());
+            out.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    private static String string(ByteBuffer in, int length) {
+        byte[] b = new byte[length];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
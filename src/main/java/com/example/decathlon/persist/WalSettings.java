@@ -0,0 +1,47 @@
+package com.example.decathlon.persist;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+@Component
+public class WalSettings {
+    public final boolean enabled;
+    public final Path path;
+    public final long groupCommitMicros;
+    public final int groupCommitRecords;
+    public final Path checkpointPath;
+    // 0 writes a checkpoint only on shutdown
+    public final long checkpointIntervalSeconds;
+
+    public WalSettings(@Value("${decathlon.wal.enabled:false}") boolean enabled,
+                       @Value("${decathlon.wal.path:data/competition.wal}") String path,
+                       @Value("${decathlon.wal.group-commit-us:1000}") long groupCommitMicros,
+                       @Value("${decathlon.wal.group-commit-records:512}") int groupCommitRecords,
+                       @Value("${decathlon.checkpoint.path:data/competition.ckpt}") String checkpointPath,
+                       @Value("${decathlon.checkpoint.interval-s:60}") long checkpointIntervalSeconds) {
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.groupCommitMicros = groupCommitMicros;
+        this.groupCommitRecords = groupCommitRecords;
+        this.checkpointPath = Path.of(checkpointPath);
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+
+    // Further competitions keep their log and checkpoint in competitions/ next to the default ones
+    public WalSettings forCompetition(String id) {
+        return new WalSettings(enabled, competitionFile(path, id + ".wal"), groupCommitMicros, groupCommitRecords,
+                competitionFile(checkpointPath, id + ".ckpt"), checkpointIntervalSeconds);
+    }
+
+    public Path competitionsDir() { return path.resolveSibling("competitions"); }
+
+    private static String competitionFile(Path defaultFile, String name) {
+        return defaultFile.resolveSibling("competitions").resolve(name).toString();
+    }
+
+    public static WalSettings disabled() {
+        return new WalSettings(false, "", 0, 1, "", 0);
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.decathlon.persist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only binary log of competitor registrations, scores and scoring-table switches with
+// group commit.
+// Writers append into a shared buffer and get back an LSN (the file offset just past their
+// record); a flusher thread writes and fsyncs everything pending at most once per window,
+// or sooner when maxRecords are waiting, and wakes the writers whose LSN became durable.
+//
+// File: "DWAL" + int version + long id (random, fixed when the log is created; version 1 logs
+// have no id and count as id 0), then records of int length | int crc32 | body, where body is
+// byte type | unsigned short+utf8 name, then int id (ADD), byte+utf8 mode | byte+utf8 event | double raw
+// (SCORE), or int version with an empty name (TABLES). Logs from before ids were assigned hold
+// ADD_UNNUMBERED records without the id. A record whose checksum holds but whose body does not
+// parse (older builds wrapped names over 65535 bytes) is skipped rather than ending the log.
+public class WriteAheadLog implements Closeable {
+    public interface Replay {
+        // id is -1 for registrations logged before ids existed
+        void add(String name, int id);
+        void score(String name, String mode, String event, double raw);
+        // Everything after this record was scored with this version of the scoring tables
+        void tables(int version);
+    }
+
+    // End of the log and where its last record starts; lastRecord == lsn while there is none
+    public record Position(long lsn, long lastRecord) {}
+
+    private static final int MAGIC = 0x4457414c; // "DWAL"
+    private static final int VERSION = 2;
+    private static final int HEADER = 16, HEADER_V1 = 8;
+    private static final byte ADD_UNNUMBERED = 1, SCORE = 2, ADD = 3, TABLES = 4;
+
+    private static final WriteAheadLog DISABLED = new WriteAheadLog();
+
+    public static WriteAheadLog disabled() { return DISABLED; }
+
+    private final FileChannel channel;
+    private final long id;
+    private final long header;
+    private final long windowNanos;
+    private final int maxRecords;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasData = lock.newCondition();
+    private final Condition full = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Thread flusher;
+
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private int pendingRecords;
+    private long appendedLsn;
+    private long lastRecord;
+    private long durableLsn;
+    private IOException failure;
+    private boolean closed;
+
+    private final CRC32 crc = new CRC32();
+    private long batches;
+
+    private WriteAheadLog() {
+        channel = null;
+        id = 0;
+        header = 0;
+        windowNanos = 0;
+        maxRecords = 0;
+        flusher = null;
+    }
+
+    private WriteAheadLog(FileChannel channel, long id, long header, Position end, long windowMicros, int maxRecords) {
+        this.channel = channel;
+        this.id = id;
+        this.header = header;
+        this.appendedLsn = end.lsn();
+        this.lastRecord = end.lastRecord();
+        this.durableLsn = end.lsn();
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxRecords = Math.max(1, maxRecords);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+    }
+
+    // Opens (or creates) the log, replays every intact record into replay, drops a torn tail
+    // and starts the flusher. Nothing is appended until replay has finished.
+    public static WriteAheadLog open(Path file, long windowMicros, int maxRecords, Replay replay) throws IOException {
+        return open(file, new Position(0, 0), windowMicros, maxRecords, replay);
+    }
+
+    // As open, but replays only records after from (e.g. the position a checkpoint covers)
+    public static WriteAheadLog open(Path file, Position from, long windowMicros, int maxRecords, Replay replay) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long id, header;
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            if (ch.size() >= HEADER_V1) ch.read(h, 0);
+            if (ch.size() < HEADER_V1 || (h.getInt(0) == MAGIC && h.getInt(4) == VERSION && ch.size() < HEADER)) {
+                // New, or created by a crash before its header was written
+                id = newId();
+                header = HEADER;
+                ch.truncate(0);
+                h.clear().putInt(MAGIC).putInt(VERSION).putLong(id).flip();
+                while (h.hasRemaining()) ch.write(h, h.position());
+                ch.force(true);
+            } else if (h.getInt(0) == MAGIC && h.getInt(4) == VERSION) {
+                id = h.getLong(8);
+                header = HEADER;
+            } else if (h.getInt(0) == MAGIC && h.getInt(4) == 1) {
+                id = 0;
+                header = HEADER_V1;
+            } else {
+                throw new IOException("Not a write-ahead log: " + file);
+            }
+            if (from.lsn() > ch.size()) throw new IOException("Log " + file + " ends before LSN " + from.lsn());
+            Position end = replay(ch, from.lsn() > header ? from : new Position(header, header), replay);
+            if (end.lsn() < ch.size()) {
+                ch.truncate(end.lsn());
+                ch.force(true);
+            }
+            ch.position(end.lsn());
+            WriteAheadLog log = new WriteAheadLog(ch, id, header, end, windowMicros, maxRecords);
+            log.flusher.start();
+            return log;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private static long newId() {
+        long id;
+        do {
+            id = new SecureRandom().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    // True when file is the log with this id and an intact record ends exactly at at.lsn(), as
+    // when at was taken from it; a log that lost its end since, or another log, is not
+    public static boolean covers(Path file, long id, Position at) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_V1 || at.lsn() > ch.size()) return false;
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            ch.read(h, 0);
+            int version = h.getInt(4);
+            if (h.getInt(0) != MAGIC || (version == VERSION ? ch.size() < HEADER || h.getLong(8) != id : version != 1 || id != 0)) return false;
+            long header = version == VERSION ? HEADER : HEADER_V1;
+            if (at.lastRecord() == at.lsn()) return at.lsn() == header;
+            if (at.lastRecord() < header || at.lsn() - at.lastRecord() - 8 > Integer.MAX_VALUE) return false;
+            ByteBuffer head = ByteBuffer.allocate(8);
+            readFully(ch, head, at.lastRecord());
+            int len = head.getInt(0);
+            if (len <= 0 || at.lastRecord() + 8 + len != at.lsn()) return false;
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(ch, body, at.lastRecord() + 8);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            return (int) crc.getValue() == head.getInt(4);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    public boolean enabled() { return channel != null; }
+
+    public long id() { return id; }
+
+    // LSN of the last appended record; everything up to it is durable once awaitDurable returns
+    public long appendedLsn() {
+        lock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // As appendedLsn, with where the last record starts
+    public Position position() {
+        lock.lock();
+        try {
+            return new Position(appendedLsn, lastRecord);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True while nothing was ever appended, replayed records included
+    public boolean empty() { return appendedLsn() == header; }
+
+    public long batches() { return batches; }
+
+    public long appendAdd(String name, int id) {
+        if (channel == null) return 0;
+        byte[] n = name(name);
+        ByteBuffer body = ByteBuffer.allocate(1 + 2 + n.length + 4);
+        body.put(ADD).putShort((short) n.length).put(n).putInt(id);
+        return append(body.array());
+    }
+
+    public long appendScore(String name, String mode, String event, double raw) {
+        if (channel == null) return 0;
+        byte[] n = name(name);
+        byte[] m = mode.getBytes(StandardCharsets.UTF_8);
+        byte[] e = event.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 2 + n.length + 1 + m.length + 1 + e.length + 8);
+        body.put(SCORE).putShort((short) n.length).put(n).put((byte) m.length).put(m).put((byte) e.length).put(e).putDouble(raw);
+        return append(body.array());
+    }
+
+    private static byte[] name(String name) {
+        byte[] n = name.getBytes(StandardCharsets.UTF_8);
+        if (n.length > 0xffff) throw new IllegalArgumentException("Name too long to log: " + n.length + " bytes");
+        return n;
+    }
+
+    public long appendTables(int version) {
+        if (channel == null) return 0;
+        ByteBuffer body = ByteBuffer.allocate(1 + 2 + 4);
+        body.put(TABLES).putShort((short) 0).putInt(version);
+        return append(body.array());
+    }
+
+    private long append(byte[] body) {
+        lock.lock();
+        try {
+            if (failure != null) throw new UncheckedIOException("Write-ahead log failed", failure);
+            if (closed) throw new IllegalStateException("Write-ahead log closed");
+            if (pending.remaining() < body.length + 8) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + body.length + 8));
+                pending.flip();
+                pending = bigger.put(pending);
+            }
+            crc.reset();
+            crc.update(body);
+            pending.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            lastRecord = appendedLsn;
+            appendedLsn += body.length + 8;
+            if (pendingRecords++ == 0) hasData.signal();
+            if (pendingRecords >= maxRecords) full.signal();
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until every record up to lsn has been fsynced
+    public void awaitDurable(long lsn) {
+        if (channel == null || lsn == 0) return;
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) throw new UncheckedIOException("Write-ahead log failed", failure);
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long end;
+            lock.lock();
+            try {
+                while (pendingRecords == 0 && !closed) hasData.awaitUninterruptibly();
+                if (pendingRecords == 0) return;
+                long deadline = System.nanoTime() + windowNanos;
+                while (pendingRecords < maxRecords && !closed) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    try {
+                        full.awaitNanos(left);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+                pendingRecords = 0;
+                end = appendedLsn;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) channel.write(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+            lock.lock();
+            try {
+                spare = batch;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableLsn = end;
+                    batches++;
+                }
+                durable.signalAll();
+                if (error != null) return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Returns the offset just past the last intact record at or after from, and where that record
+    // starts (from's when there is none)
+    private static Position replay(FileChannel ch, Position from, Replay replay) throws IOException {
+        long pos = from.lsn(), last = from.lastRecord(), size = ch.size();
+        ByteBuffer head = ByteBuffer.allocate(8);
+        CRC32 crc = new CRC32();
+        while (pos + 8 <= size) {
+            head.clear();
+            readFully(ch, head, pos);
+            int len = head.getInt(0), sum = head.getInt(4);
+            if (len <= 0 || pos + 8 + len > size) break;
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(ch, body, pos + 8);
+            crc.reset();
+            crc.update(body.array());
+            if ((int) crc.getValue() != sum) break;
+            body.flip();
+            try {
+                if (!apply(body, replay)) break;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                // Intact but unreadable: skip it, the records after it are still good
+            }
+            last = pos;
+            pos += 8 + len;
+        }
+        return new Position(pos, last);
+    }
+
+    // Parses every field before replaying anything, so a malformed record has no effect.
+    // False for an unknown type, which ends the log as before.
+    private static boolean apply(ByteBuffer body, Replay replay) {
+        byte type = body.get();
+        String name = utf8(body, body.getShort() & 0xffff);
+        if (type == ADD || type == ADD_UNNUMBERED) {
+            int id = type == ADD ? body.getInt() : -1;
+            if (!body.hasRemaining()) replay.add(name, id);
+        } else if (type == SCORE) {
+            String mode = utf8(body, body.get() & 0xff);
+            String event = utf8(body, body.get() & 0xff);
+            double raw = body.getDouble();
+            if (!body.hasRemaining()) replay.score(name, mode, event, raw);
+        } else if (type == TABLES) {
+            int version = body.getInt();
+            if (!body.hasRemaining()) replay.tables(version);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, pos + buf.position()) < 0) throw new IOException("Unexpected end of log");
+        }
+    }
+
+    private static String utf8(ByteBuffer buf, int len) {
+        if (len > buf.remaining()) throw new BufferUnderflowException();
+        String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    // Flushes what is pending, then stops the flusher and closes the file
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        lock.lock();
+        try {
+            closed = true;
+            hasData.signalAll();
+            full.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
@@ -55,6 +55,7 @@ function rebuildStandingsHeader() {
 el('mode').addEventListener('change', async () => {
   rebuildEventSelect();
   rebuildStandingsHeader();
+  subscribeStandings();
   await renderStandings();
 });
 
@@ -127,27 +128,45 @@ el('export').addEventListener('click', async () => {
 });
 
 async function renderStandings() {
+  if (feed) return; // the live feed pushes fresh standings after every change
   try {
     const mode = currentMode();
     const res = await fetch(`/api/standings?mode=${mode}`);
-    const data = await res.json();
-    const cols = EVENTS[mode].map(e => e.id);
-    const rows = (sortBroken ? data : data.sort((a,b)=> (b.total||0)-(a.total||0)))
-      .map(r => {
-        const cells = cols.map(id => r.scores?.[id] ?? '');
-        return `<tr><td>${escapeHtml(r.name)}</td>${cells.map(c=>`<td>${c}</td>`).join('')}<td>${r.total ?? 0}</td></tr>`;
-      }).join('');
-    el('standings').innerHTML = rows;
-    setError('');
+    showStandings(mode, await res.json());
   } catch (e) {
     setError('Could not load standings');
   }
 }
 
+function showStandings(mode, data) {
+  const cols = EVENTS[mode].map(e => e.id);
+  const rows = (sortBroken ? data : data.sort((a,b)=> (b.total||0)-(a.total||0)))
+    .map(r => {
+      const cells = cols.map(id => r.scores?.[id] ?? '');
+      return `<tr><td>${escapeHtml(r.name)}</td>${cells.map(c=>`<td>${c}</td>`).join('')}<td>${r.total ?? 0}</td></tr>`;
+    }).join('');
+  el('standings').innerHTML = rows;
+  setError('');
+}
+
+let feed = null;
+
+function subscribeStandings() {
+  if (feed) feed.close();
+  feed = null;
+  if (!window.EventSource) return;
+  const mode = currentMode();
+  const source = new EventSource(`/api/standings/stream?mode=${mode}`);
+  source.addEventListener('standings', ev => showStandings(mode, JSON.parse(ev.data)));
+  source.onerror = () => { if (source.readyState === EventSource.CLOSED && feed === source) feed = null; };
+  feed = source;
+}
+
 function escapeHtml(s){
   return String(s).replace(/[&<>"]/g, c => ({'&':'&amp;','<':'&lt;','>':'&gt;','"':'&quot;'}[c]));
 }
 
 rebuildEventSelect();
 rebuildStandingsHeader();
+subscribeStandings();
 renderStandings();
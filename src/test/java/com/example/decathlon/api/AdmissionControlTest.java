@@ -0,0 +1,49 @@
+package com.example.decathlon.api;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    // Two tokens that practically never refill, and one request in flight at a time
+    private final AdmissionControl admission = new AdmissionControl(true, 0.001, 2, "", 1, 1, 1, meters);
+
+    private double rejected(String reason) {
+        return meters.get("decathlon.admission.rejected").tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void requestsTurnedAwayByTheConcurrencyLimitKeepTheClientsTokens() throws Exception {
+        MockHttpServletRequest running = new MockHttpServletRequest();
+        assertTrue(admission.preHandle(running, new MockHttpServletResponse(), null));
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletResponse res = new MockHttpServletResponse();
+            assertFalse(admission.preHandle(new MockHttpServletRequest(), res, null));
+            assertEquals(429, res.getStatus());
+        }
+        assertEquals(5, rejected("concurrency"));
+        assertEquals(0, rejected("client-rate"));
+
+        admission.afterCompletion(running, new MockHttpServletResponse(), null, null);
+        assertTrue(admission.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void clientsOverTheirRateAreRejected() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest req = new MockHttpServletRequest();
+            assertTrue(admission.preHandle(req, new MockHttpServletResponse(), null));
+            admission.afterCompletion(req, new MockHttpServletResponse(), null, null);
+        }
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        assertFalse(admission.preHandle(new MockHttpServletRequest(), res, null));
+        assertEquals(429, res.getStatus());
+        assertEquals(1, rejected("client-rate"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.decathlon.api;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.Competitions;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.persist.WalSettings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ApiControllerTest {
+    private final ScoringService scoring = new ScoringService(false);
+    private final CompetitionService comp = new CompetitionService(scoring, "monitor");
+    private final Competitions competitions = new Competitions(comp, scoring, "monitor", WalSettings.disabled(), new SimpleMeterRegistry());
+    private final StandingsFeed feed = new StandingsFeed(new ObjectMapper(), 500, 1, 5000);
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(
+            new ApiController(competitions, scoring, feed, new RequestMetrics(competitions))).build();
+
+    @AfterEach
+    void close() throws Exception {
+        feed.close();
+        competitions.close();
+    }
+
+    private int create(String body) throws Exception {
+        return mvc.perform(post("/api/competitions").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    void competitionsAreCreatedOnceAndUnknownOnesAreNotFound() throws Exception {
+        assertEquals(201, create("{\"id\": \"indoor\"}"));
+        assertEquals(409, create("{\"id\": \"indoor\"}"));
+        assertEquals(409, create("{\"id\": \"default\"}"));
+        assertEquals(400, create("{\"id\": \"in door\"}"));
+        assertEquals(400, create("{\"id\": \"" + "x".repeat(65) + "\"}"));
+        assertEquals(400, create("{}"));
+
+        mvc.perform(post("/api/competitions/indoor/score").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Ann\", \"mode\": \"DEC\", \"event\": \"100m\", \"raw\": 11.0}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/competitions/indoor/standings").param("mode", "DEC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Ann"));
+        assertEquals(0, comp.count());
+        mvc.perform(get("/api/competitions/outdoor")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/competitions/outdoor/standings").param("mode", "DEC")).andExpect(status().isNotFound());
+        mvc.perform(post("/api/competitions/outdoor/score").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Ann\", \"mode\": \"DEC\", \"event\": \"100m\", \"raw\": 11.0}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rankOfCompetitorsOutsideTheModeIsNotFound() throws Exception {
+        comp.score("Ann", "DEC", "100m", 11.0);
+        comp.score("Bo", "DEC", "100m", 10.5);
+        mvc.perform(get("/api/competitors/Ann/rank").param("mode", "DEC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rank").value(2))
+                .andExpect(jsonPath("$.competitors").value(2));
+        mvc.perform(get("/api/competitors/Ann/rank").param("mode", "HEP")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/competitors/Nobody/rank").param("mode", "DEC")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/competitions/nope/competitors/Ann/rank").param("mode", "DEC")).andExpect(status().isNotFound());
+    }
+
+    // The 200 response of a route, with exports run to completion
+    private MvcResult fetch(String path) throws Exception {
+        MvcResult result = mvc.perform(get(path).param("mode", "DEC")).andReturn();
+        if (result.getRequest().isAsyncStarted()) result = mvc.perform(asyncDispatch(result)).andReturn();
+        assertEquals(200, result.getResponse().getStatus(), path);
+        return result;
+    }
+
+    private int statusWith(String path, String ifNoneMatch) throws Exception {
+        MvcResult result = mvc.perform(get(path).param("mode", "DEC").header("If-None-Match", ifNoneMatch)).andReturn();
+        if (result.getResponse().getStatus() == 304) {
+            assertEquals(List.of(result.getResponse().getHeader("ETag")), result.getResponse().getHeaders("ETag"));
+            assertEquals("", result.getResponse().getContentAsString());
+        }
+        return result.getResponse().getStatus();
+    }
+
+    @Test
+    void unchangedStandingsAndExportsAreNotModified() throws Exception {
+        comp.score("Ann", "DEC", "100m", 11.0);
+        for (String path : new String[] {"/api/standings", "/api/export.csv"}) {
+            MvcResult first = fetch(path);
+            List<String> tags = first.getResponse().getHeaders("ETag");
+            assertEquals(1, tags.size(), path);
+            String tag = tags.get(0);
+            assertEquals(304, statusWith(path, tag), path);
+            assertEquals(304, statusWith(path, "W/" + tag), path);
+            assertEquals(304, statusWith(path, "\"other\", " + tag), path);
+            assertEquals(304, statusWith(path, "*"), path);
+            assertEquals(200, statusWith(path, "\"other\""), path);
+
+            comp.score("Bo", "DEC", "100m", 10.5);
+            // The old tag is stale now, and the new one is not
+            assertEquals(200, statusWith(path, tag), path);
+            String now = fetch(path).getResponse().getHeader("ETag");
+            assertNotEquals(tag, now, path);
+            assertEquals(304, statusWith(path, now), path);
+            // Another mode has a tag of its own
+            assertEquals(200, mvc.perform(get(path).param("mode", "HEP").header("If-None-Match", now))
+                    .andReturn().getResponse().getStatus(), path);
+        }
+    }
+}
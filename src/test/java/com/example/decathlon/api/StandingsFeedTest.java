@@ -0,0 +1,95 @@
+package com.example.decathlon.api;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.ScoringService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StandingsFeedTest {
+    private static final long STALL_MS = 300;
+
+    // Ticks every 10 ms; two sending threads, so one stuck send leaves one for everyone else
+    private final StandingsFeed feed = new StandingsFeed(new ObjectMapper(), 10, 2, STALL_MS);
+
+    private static class CountingEmitter extends SseEmitter {
+        final AtomicInteger sends = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            sends.incrementAndGet();
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+    // Its first send does not return until released
+    private static class StuckEmitter extends CountingEmitter {
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile long stuckSince;
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            super.send(event);
+            if (stuckSince == 0) stuckSince = System.nanoTime();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @AfterEach
+    void close() {
+        feed.close();
+    }
+
+    @Test
+    void aStalledSubscriberIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+        int dec = comp.registry().mode("DEC");
+        comp.score("Ann", "DEC", "100m", 11.0);
+        StuckEmitter stuck = new StuckEmitter();
+        CountingEmitter a = new CountingEmitter(), b = new CountingEmitter();
+        feed.subscribe(comp, dec, stuck);
+        feed.subscribe(comp, dec, a);
+        feed.subscribe(comp, dec, b);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; feed.subscribers(comp, dec) == 3 && System.nanoTime() < deadline; i++) {
+            comp.score("C" + i, "DEC", "100m", 11.0);
+            Thread.sleep(5);
+        }
+        long dropped = System.nanoTime();
+        assertEquals(2, feed.subscribers(comp, dec));
+        assertTrue(stuck.stuckSince != 0 && dropped - stuck.stuckSince >= TimeUnit.MILLISECONDS.toNanos(STALL_MS),
+                "dropped " + TimeUnit.NANOSECONDS.toMillis(dropped - stuck.stuckSince) + " ms into the stuck send");
+        // Updates kept flowing to the others while the stuck send ran
+        assertTrue(a.sends.get() > 5 && b.sends.get() > 5, a.sends + " and " + b.sends + " sends");
+
+        // Completed once the send returns, and sent nothing more
+        stuck.release.countDown();
+        assertTrue(stuck.completed.await(5, TimeUnit.SECONDS));
+        int before = a.sends.get();
+        comp.score("Late", "DEC", "100m", 11.0);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (a.sends.get() == before && System.nanoTime() < deadline) Thread.sleep(5);
+        assertTrue(a.sends.get() > before);
+        assertEquals(1, stuck.sends.get());
+        assertEquals(1, a.completed.getCount());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.persist.WalSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompetitionsTest {
+    @TempDir
+    Path dir;
+
+    private final ScoringService scoring = new ScoringService(false);
+
+    private WalSettings wal() {
+        return new WalSettings(true, dir.resolve("competition.wal").toString(), 100, 64, dir.resolve("competition.ckpt").toString(), 0);
+    }
+
+    private Competitions open(CompetitionService defaultCompetition) {
+        return new Competitions(defaultCompetition, scoring, "monitor", wal(), new SimpleMeterRegistry());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "a b", "a/b", "..", "ä", "a.wal", "x12345678901234567890123456789012345678901234567890123456789012345"})
+    void badIdsAreRejected(String id) throws Exception {
+        Competitions competitions = open(new CompetitionService(scoring, "monitor"));
+        try {
+            assertThrows(IllegalArgumentException.class, () -> competitions.create(id));
+            assertEquals(List.of(Competitions.DEFAULT), competitions.ids());
+        } finally {
+            competitions.close();
+        }
+    }
+
+    @Test
+    void idsAreCreatedOnce() throws Exception {
+        Competitions competitions = open(new CompetitionService(scoring, "monitor"));
+        try {
+            assertThrows(IllegalArgumentException.class, () -> competitions.create(null));
+            String longest = "x".repeat(64);
+            assertTrue(competitions.create(longest));
+            assertTrue(competitions.create("Indoor_2024-b"));
+            assertFalse(competitions.create("Indoor_2024-b"));
+            assertFalse(competitions.create(Competitions.DEFAULT));
+            assertNull(competitions.get("indoor_2024-b"));
+            assertEquals(List.of("Indoor_2024-b", Competitions.DEFAULT, longest), competitions.ids());
+        } finally {
+            competitions.close();
+        }
+    }
+
+    // Competitions created at runtime are found again from their logs, each with only its own marks
+    @Test
+    void competitionsAreReopenedAndKeptApart() throws Exception {
+        CompetitionService first = new CompetitionService(scoring, "monitor", wal());
+        Competitions competitions = open(first);
+        assertTrue(competitions.create("indoor"));
+        assertTrue(competitions.create("outdoor"));
+        competitions.get("indoor").score("Ann", "DEC", "100m", 11.0);
+        competitions.get("outdoor").score("Bo", "HEP", "200m", 24.5);
+        competitions.get("outdoor").score("Cy", "HEP", "200m", 25.0);
+        first.score("Dee", "DEC", "100m", 10.8);
+        competitions.close();
+        first.close();
+        assertTrue(Files.exists(wal().competitionsDir().resolve("indoor.wal")));
+        // Not a competition log, so left alone
+        Files.createFile(wal().competitionsDir().resolve("not a competition.wal"));
+
+        CompetitionService second = new CompetitionService(scoring, "monitor", wal());
+        Competitions reopened = open(second);
+        try {
+            assertEquals(List.of(Competitions.DEFAULT, "indoor", "outdoor"), reopened.ids());
+            CompetitionService indoor = reopened.get("indoor"), outdoor = reopened.get("outdoor");
+            assertEquals(1, indoor.count());
+            assertEquals(0, indoor.id("Ann"));
+            assertEquals(2, outdoor.count());
+            assertEquals(-1, outdoor.id("Ann"));
+            assertEquals(List.of("Bo", "Cy"), outdoor.standings("HEP").stream().map(r -> r.get("name")).toList());
+            assertEquals(1, second.count());
+            assertEquals(-1, second.id("Ann"));
+            assertFalse(reopened.create("indoor"));
+
+            // Writes after the reopen stay apart too
+            indoor.score("Eve", "DEC", "100m", 11.2);
+            assertEquals(2, indoor.count());
+            assertEquals(2, outdoor.count());
+            assertEquals(1, second.count());
+        } finally {
+            reopened.close();
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.core.ScoringService.EventDef;
+import com.example.decathlon.core.ScoringService.Type;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PointsTableTest {
+    private final ScoringService tables = new ScoringService(true);
+
+    // Scoring as it was before tables: one Math.pow per call
+    private static int reference(EventDef e, double raw) {
+        double x = e.type() == Type.TRACK ? e.B() - raw : raw - e.B();
+        if (x <= 0) return 0;
+        return (int) Math.floor(e.A() * Math.pow(x, e.C()));
+    }
+
+    @Test
+    void everyMarkOnTheGridScoresAsTheFormula() {
+        EventRegistry r = tables.registry();
+        for (EventRegistry.ModeDef m : ScoringService.MODES) {
+            for (EventDef e : m.events()) {
+                int ev = r.event(r.mode(m.id()), e.id());
+                int decimals = e.unit().equals("cm") ? 0 : 2;
+                long lo = BigDecimal.valueOf(e.min()).movePointRight(decimals).longValueExact();
+                long hi = BigDecimal.valueOf(e.max()).movePointRight(decimals).longValueExact();
+                for (long q = lo; q <= hi; q++) {
+                    // As a judge would type it
+                    String typed = BigDecimal.valueOf(q).movePointLeft(decimals).toPlainString();
+                    double raw = Double.parseDouble(typed);
+                    assertNotEquals(PointsTable.OFF_GRID, r.tables[ev].indexOf(raw), m.id() + " " + e.id() + " " + typed);
+                    assertEquals(reference(e, raw), tables.score(r, ev, raw), m.id() + " " + e.id() + " " + typed);
+                }
+            }
+        }
+    }
+
+    @Test
+    void marksOffTheGridScoreAsTheFormula() {
+        EventRegistry r = tables.registry();
+        EventDef e = ScoringService.MODES.get(0).events().get(0);
+        for (String typed : new String[]{"10.005", "10.4449", "11.123456", "9.999"}) {
+            double raw = Double.parseDouble(typed);
+            assertEquals(PointsTable.OFF_GRID, r.tables[0].indexOf(raw), typed);
+            assertEquals(reference(e, raw), tables.score(r, 0, raw), typed);
+        }
+    }
+}
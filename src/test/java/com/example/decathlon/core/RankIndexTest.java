@@ -0,0 +1,98 @@
+package com.example.decathlon.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RankIndexTest {
+    @Test
+    void countsAtBothEndsOfTheRange() {
+        RankIndex idx = new RankIndex(100);
+        idx.add(0, 1);
+        idx.add(0, 1);
+        idx.add(100, 1);
+        idx.add(50, 1);
+        assertEquals(2, idx.atMost(0));
+        assertEquals(3, idx.atMost(99));
+        assertEquals(4, idx.atMost(100));
+        assertEquals(4, idx.count());
+        // Out of range totals count at the nearest end
+        idx.add(-5, 1);
+        idx.add(150, 1);
+        assertEquals(3, idx.atMost(0));
+        assertEquals(6, idx.atMost(100));
+        idx.move(100, 0);
+        assertEquals(4, idx.atMost(0));
+        assertEquals(5, idx.atMost(99));
+    }
+
+    @Test
+    void builtFromCountsMatchesAddingOneByOne() {
+        int max = 1000;
+        SplittableRandom rnd = new SplittableRandom(3);
+        int[] counts = new int[max + 1];
+        RankIndex added = new RankIndex(max);
+        for (int i = 0; i < 5000; i++) {
+            int t = i % 100 == 0 ? max : rnd.nextInt(max + 1);
+            counts[t]++;
+            added.add(t, 1);
+        }
+        RankIndex built = new RankIndex(max, counts);
+        for (int t = 0; t <= max; t++) assertEquals(added.atMost(t), built.atMost(t), "at " + t);
+    }
+
+    // The rank is one more than the number of competitors listed above the total, after corrections too
+    @Test
+    void rankMatchesTheStandings() {
+        CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+        EventRegistry r = comp.registry();
+        int dec = r.mode("DEC");
+        SplittableRandom rnd = new SplittableRandom(8);
+        for (int i = 0; i < 200; i++) {
+            // Few distinct times, so many totals are tied
+            comp.score("C" + i, "DEC", "100m", 10.5 + rnd.nextInt(20) / 10.0);
+            if (i % 3 == 0) comp.score("C" + i, "DEC", "longJump", 650 + rnd.nextInt(5) * 10);
+        }
+        // Corrections, moving competitors up and down
+        for (int i = 0; i < 200; i += 7) comp.score("C" + i, "DEC", "100m", i % 2 == 0 ? 10.2 : 12.4);
+
+        List<Map<String, Object>> rows = comp.standingsPage(dec, 0, Integer.MAX_VALUE).rows();
+        assertEquals(200, rows.size());
+        for (Map<String, Object> row : rows) {
+            int total = (Integer) row.get("total");
+            long above = rows.stream().filter(o -> (Integer) o.get("total") > total).count();
+            long tied = rows.stream().filter(o -> (Integer) o.get("total") == total).count();
+            CompetitionService.Rank rank = comp.rank((String) row.get("name"), dec);
+            assertEquals(total, rank.total());
+            assertEquals(above + 1, rank.rank(), (String) row.get("name"));
+            assertEquals(200, rank.competitors());
+            assertEquals(100.0 * (200 - above - tied + tied / 2.0) / 200, rank.percentile(), 1e-9);
+        }
+    }
+
+    // Scoring in one mode takes a competitor out of the others; one without marks is in every mode
+    @Test
+    void unknownCompetitorsAndOtherModesHaveNoRank() {
+        CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+        EventRegistry r = comp.registry();
+        comp.score("Ann", "DEC", "100m", 11.0);
+        comp.addCompetitor("Bo");
+        assertNull(comp.rank("Nobody", r.mode("DEC")));
+        assertNull(comp.rank(null, r.mode("DEC")));
+        assertNull(comp.rank("Ann", r.mode("HEP")));
+        CompetitionService.Rank ann = comp.rank("Ann", r.mode("DEC"));
+        assertEquals(1, ann.rank());
+        assertEquals(2, ann.competitors());
+        assertEquals(75.0, ann.percentile(), 1e-9);
+        CompetitionService.Rank bo = comp.rank("Bo", r.mode("DEC"));
+        assertEquals(0, bo.total());
+        assertEquals(2, bo.rank());
+        assertEquals(25.0, bo.percentile(), 1e-9);
+        assertEquals(1, comp.rank("Bo", r.mode("HEP")).competitors());
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.core.ScoringService.EventDef;
+import com.example.decathlon.persist.WalSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A competition reopened from its log and checkpoint has the same ids, tables version and
+// standings as before, however much of it the checkpoint covers.
+class RecoveryTest {
+    @TempDir
+    Path dir;
+
+    private WalSettings wal() {
+        // No periodic checkpoints; the tests take them
+        return new WalSettings(true, dir.resolve("c.wal").toString(), 100, 64, dir.resolve("c.ckpt").toString(), 0);
+    }
+
+    private static ScoringService scoring() throws IOException {
+        ScoringService scoring = new ScoringService(true);
+        scoring.define(2, ScoringTablesTest.withFirstEvent(e -> new EventDef(e.id(), e.type(), e.A() * 2, e.B(), e.C(), e.unit(), e.min(), e.max())));
+        return scoring;
+    }
+
+    private static void scoreSome(CompetitionService comp, SplittableRandom rnd, int marks) {
+        EventRegistry r = comp.registry();
+        for (int i = 0; i < marks; i++) {
+            int ev = rnd.nextInt(r.eventCount());
+            double raw = r.min(ev) + rnd.nextDouble() * (r.max(ev) - r.min(ev));
+            // Every tenth mark off the grid
+            raw = i % 10 == 0 ? Math.round(raw * 1000) / 1000.0 : Math.round(raw * 100) / 100.0;
+            comp.score("C" + rnd.nextInt(300), r.modeId(r.modeOf(ev)), r.eventId(ev), Math.min(raw, r.max(ev)));
+        }
+    }
+
+    private static Map<String, Object> state(CompetitionService comp) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("tables", comp.tablesVersion());
+        state.put("count", comp.count());
+        EventRegistry r = comp.registry();
+        for (int m = 0; m < r.modeCount(); m++) {
+            List<Map<String, Object>> rows = comp.standings(m);
+            state.put(r.modeId(m), rows);
+            for (Map<String, Object> row : rows) state.put("id " + row.get("name"), comp.id((String) row.get("name")));
+        }
+        return state;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"closed", "log only", "checkpoint before rescore", "checkpoint after rescore"})
+    void reopenedCompetitionMatches(String how) throws Exception {
+        ScoringService scoring = scoring();
+        SplittableRandom rnd = new SplittableRandom(42);
+        CompetitionService comp = new CompetitionService(scoring, "concurrent", wal());
+        scoreSome(comp, rnd, 2000);
+        if (how.equals("checkpoint before rescore")) comp.checkpoint();
+        assertEquals(2, comp.rescore(2).to());
+        if (how.equals("checkpoint after rescore")) comp.checkpoint();
+        scoreSome(comp, rnd, 500);
+        Map<String, Object> before = state(comp);
+        assertEquals(2, before.get("tables"));
+
+        if (how.equals("closed") || how.equals("log only")) comp.close();
+        // Otherwise left open, as after a crash: every call above returned once its record was durable
+        if (how.equals("log only")) Files.delete(wal().checkpointPath);
+
+        CompetitionService reopened = new CompetitionService(scoring, "concurrent", wal());
+        try {
+            assertEquals(before, state(reopened));
+            // Ids keep counting from where they were
+            assertEquals(300, reopened.addCompetitor("New"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    // The log lost its end after a checkpoint was written (as when checkpoints did not wait for
+    // the log): the checkpoint must not be used now, nor after the log has grown past it again
+    @Test
+    void checkpointPastTheEndOfTheLogIsDropped() throws Exception {
+        ScoringService scoring = scoring();
+        SplittableRandom rnd = new SplittableRandom(5);
+        CompetitionService comp = new CompetitionService(scoring, "concurrent", wal());
+        scoreSome(comp, rnd, 300);
+        Map<String, Object> logged = state(comp);
+        Path saved = dir.resolve("saved.wal");
+        Files.copy(wal().path, saved);
+        scoreSome(comp, rnd, 300);
+        comp.checkpoint();
+        // Crash, losing the log written after the copy
+        Files.copy(saved, wal().path, StandardCopyOption.REPLACE_EXISTING);
+
+        CompetitionService reopened = new CompetitionService(scoring, "concurrent", wal());
+        assertEquals(logged, state(reopened));
+        assertFalse(Files.exists(wal().checkpointPath));
+        scoreSome(reopened, rnd, 1000);
+        assertTrue(Files.size(wal().path) > Files.size(saved) * 2);
+        Map<String, Object> before = state(reopened);
+        // Crash again
+        CompetitionService again = new CompetitionService(scoring, "concurrent", wal());
+        try {
+            assertEquals(before, state(again));
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void checkpointOfAnotherLogIsIgnored() throws Exception {
+        ScoringService scoring = scoring();
+        SplittableRandom rnd = new SplittableRandom(6);
+        Path other = dir.resolve("other");
+        WalSettings otherWal = new WalSettings(true, other.resolve("c.wal").toString(), 100, 64, other.resolve("c.ckpt").toString(), 0);
+        CompetitionService small = new CompetitionService(scoring, "concurrent", otherWal);
+        scoreSome(small, rnd, 50);
+        small.close();
+
+        CompetitionService comp = new CompetitionService(scoring, "concurrent", wal());
+        scoreSome(comp, rnd, 500);
+        Map<String, Object> before = state(comp);
+        comp.close();
+        // Shorter than this log, so its LSN lies within it
+        Files.copy(otherWal.checkpointPath, wal().checkpointPath, StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(Files.size(otherWal.path) < Files.size(wal().path));
+
+        CompetitionService reopened = new CompetitionService(scoring, "concurrent", wal());
+        try {
+            assertEquals(before, state(reopened));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void unknownIdsAreRejectedRatherThanRegistered() throws Exception {
+        CompetitionService comp = new CompetitionService(scoring(), "monitor", wal());
+        try {
+            int ann = comp.addCompetitor("Ann");
+            assertThrows(IllegalArgumentException.class, () -> comp.scoreById(ann + 1, 0, 11.0));
+            assertThrows(IllegalArgumentException.class, () -> comp.scoreById(-1, 0, 11.0));
+            List<CompetitionService.Outcome> outcomes = comp.scoreBatch(List.of(
+                    new CompetitionService.Mark(null, 7, 0, 11.0),
+                    new CompetitionService.Mark(null, ann, 0, 11.0)));
+            assertNotNull(outcomes.get(0).error());
+            assertEquals(null, outcomes.get(1).error());
+            assertEquals(1, comp.count());
+            assertEquals(1, comp.addCompetitor("Bo"));
+        } finally {
+            comp.close();
+        }
+    }
+
+    // Ids handed out by addCompetitor keep naming the same competitors after a restart
+    @ParameterizedTest
+    @ValueSource(strings = {"log only", "checkpoint and log"})
+    void idsSurviveARestart(String how) throws Exception {
+        ScoringService scoring = scoring();
+        CompetitionService comp = new CompetitionService(scoring, "monitor", wal());
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            if (i == 25 && how.equals("checkpoint and log")) comp.checkpoint();
+            // Ids interleaved with competitors registered by scoring them by name
+            if (i % 5 == 0) comp.score("S" + i, 0, 11.0);
+            ids.put("A" + i, comp.addCompetitor("A" + i));
+        }
+        comp.scoreById(ids.get("A3"), 0, 10.5);
+        if (how.equals("log only")) {
+            comp.close();
+            Files.delete(wal().checkpointPath);
+        }
+
+        CompetitionService reopened = new CompetitionService(scoring, "monitor", wal());
+        try {
+            for (Map.Entry<String, Integer> e : ids.entrySet()) assertEquals(e.getValue(), reopened.id(e.getKey()), e.getKey());
+            reopened.scoreById(ids.get("A40"), 0, 10.0);
+            assertEquals(1, reopened.rank("A40", 0).rank());
+            assertEquals(2, reopened.rank("A3", 0).rank());
+            assertThrows(IllegalArgumentException.class, () -> reopened.scoreById(60, 0, 11.0));
+            assertEquals(60, reopened.addCompetitor("New"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void namesAboveTheLimitAreRejectedAndTheLogStillOpens() throws Exception {
+        ScoringService scoring = scoring();
+        CompetitionService comp = new CompetitionService(scoring, "monitor", wal());
+        String longest = "é".repeat(CompetitionService.MAX_NAME_LENGTH);
+        String tooLong = "x".repeat(70_000);
+        comp.addCompetitor(longest);
+        assertThrows(IllegalArgumentException.class, () -> comp.addCompetitor(tooLong));
+        assertThrows(IllegalArgumentException.class, () -> comp.score(tooLong, "DEC", "100m", 11.0));
+        List<CompetitionService.Mark> batch = new ArrayList<>();
+        batch.add(new CompetitionService.Mark(tooLong, 0, 11.0));
+        batch.add(new CompetitionService.Mark("Ok", 0, 11.0));
+        List<CompetitionService.Outcome> outcomes = comp.scoreBatch(batch);
+        assertNotNull(outcomes.get(0).error());
+        assertEquals(null, outcomes.get(1).error());
+        comp.close();
+
+        CompetitionService reopened = new CompetitionService(scoring, "monitor", wal());
+        try {
+            assertEquals(2, reopened.count());
+            assertEquals(0, reopened.id(longest));
+            assertTrue(reopened.rank("Ok", 0).total() > 0);
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.decathlon.core;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// One outcome per mark, in the order given; a mark that is rejected fails only its own outcome
+class ScoreBatchTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"monitor", "concurrent"})
+    void badMarksFailOnlyThemselves(String concurrency) {
+        ScoringService scoring = new ScoringService(false);
+        CompetitionService comp = new CompetitionService(scoring, concurrency);
+        EventRegistry r = comp.registry();
+        int run = r.event(r.mode("DEC"), "100m"), jump = r.event(r.mode("DEC"), "longJump");
+        int ann = comp.addCompetitor("Ann");
+        String tooLong = "x".repeat(CompetitionService.MAX_NAME_LENGTH + 1);
+
+        List<CompetitionService.Mark> marks = new ArrayList<>();
+        marks.add(new CompetitionService.Mark("Bo", run, 10.5));
+        marks.add(new CompetitionService.Mark(tooLong, run, 10.6));
+        marks.add(new CompetitionService.Mark(null, ann, jump, 720));
+        marks.add(new CompetitionService.Mark(null, 42, run, 10.7));
+        marks.add(new CompetitionService.Mark("Bo", jump, 690));
+        marks.add(new CompetitionService.Mark("Cy", EventRegistry.UNKNOWN, 10.8));
+        marks.add(new CompetitionService.Mark("Ann", run, 11.2));
+        List<CompetitionService.Outcome> outcomes = comp.scoreBatch(marks);
+
+        assertEquals(marks.size(), outcomes.size());
+        for (int i : new int[] {1, 3}) {
+            assertNotNull(outcomes.get(i).error(), "mark " + i);
+            assertEquals(0, outcomes.get(i).points(), "mark " + i);
+        }
+        assertEquals(scoring.score("DEC", "100m", 10.5), outcomes.get(0).points());
+        assertEquals(scoring.score("DEC", "longJump", 720), outcomes.get(2).points());
+        assertEquals(scoring.score("DEC", "longJump", 690), outcomes.get(4).points());
+        assertEquals(scoring.score("DEC", "100m", 11.2), outcomes.get(6).points());
+        // An unknown event scores 0 without being an error
+        assertNull(outcomes.get(5).error());
+        assertEquals(0, outcomes.get(5).points());
+        for (int i : new int[] {0, 2, 4, 6}) assertNull(outcomes.get(i).error(), "mark " + i);
+
+        // The good marks were all applied, the bad ones registered no one
+        assertEquals(3, comp.count());
+        assertEquals(-1, comp.id(tooLong));
+        int dec = r.mode("DEC");
+        assertEquals(outcomes.get(0).points() + outcomes.get(4).points(), comp.rank("Bo", dec).total());
+        assertEquals(outcomes.get(2).points() + outcomes.get(6).points(), comp.rank("Ann", dec).total());
+    }
+}
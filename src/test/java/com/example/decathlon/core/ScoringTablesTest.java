@@ -0,0 +1,72 @@
+package com.example.decathlon.core;
+
+import com.example.decathlon.core.ScoringService.EventDef;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoringTablesTest {
+    // Version 1 with the first DEC event changed
+    static List<EventRegistry.ModeDef> withFirstEvent(UnaryOperator<EventDef> change) {
+        List<EventRegistry.ModeDef> modes = new ArrayList<>(ScoringService.MODES);
+        List<EventDef> events = new ArrayList<>(modes.get(0).events());
+        events.set(0, change.apply(events.get(0)));
+        modes.set(0, new EventRegistry.ModeDef(modes.get(0).id(), events));
+        return modes;
+    }
+
+    @Test
+    void formatAndParseRoundTrip() {
+        assertEquals(ScoringService.MODES, ScoringTables.parse(ScoringTables.format(ScoringService.MODES)));
+    }
+
+    @Test
+    void parseNamesTheBadLine() {
+        String csv = ScoringTables.format(ScoringService.MODES).replace("DEC,shotPut,FIELD,51.39", "DEC,shotPut,FIELD,x");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ScoringTables.parse(csv));
+        assertTrue(e.getMessage().startsWith("Line 4:"), e.getMessage());
+    }
+
+    @Test
+    void definedVersionScoresWithItsCoefficients() throws Exception {
+        ScoringService scoring = new ScoringService(true);
+        assertTrue(scoring.define(2, withFirstEvent(e -> new EventDef(e.id(), e.type(), e.A() * 2, e.B(), e.C(), e.unit(), e.min(), e.max()))));
+        assertFalse(scoring.define(2, ScoringService.MODES));
+        int v1 = scoring.score(scoring.tables(1), 0, 10.5), v2 = scoring.score(scoring.tables(2), 0, 10.5);
+        assertEquals(ScoringService.formula(true, 2 * 25.4347, 18.0, 1.81, 10.5), v2);
+        assertTrue(v2 > v1);
+    }
+
+    @Test
+    void limitsTooWideForATableAreRejectedBeforeAllocating() {
+        ScoringService scoring = new ScoringService(true);
+        for (double max : new double[]{1e300, 17.99 + (PointsTable.MAX_SIZE / 100.0)}) {
+            List<EventRegistry.ModeDef> modes = withFirstEvent(e -> new EventDef(e.id(), e.type(), e.A(), e.B(), e.C(), e.unit(), 17.99, max));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scoring.define(2, modes));
+            assertTrue(e.getMessage().contains("span more than"), e.getMessage());
+        }
+        assertEquals(List.of(1), scoring.versions());
+    }
+
+    @Test
+    void totalsAboveTheCapAreRejected() {
+        ScoringService scoring = new ScoringService(false);
+        List<EventRegistry.ModeDef> modes = withFirstEvent(e -> new EventDef(e.id(), e.type(), 1e12, e.B(), e.C(), e.unit(), e.min(), e.max()));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scoring.define(2, modes));
+        assertTrue(e.getMessage().contains("totals can exceed"), e.getMessage());
+    }
+
+    @Test
+    void eventsMustMatchVersionOne() {
+        ScoringService scoring = new ScoringService(false);
+        List<EventRegistry.ModeDef> modes = withFirstEvent(e -> new EventDef("60m", e.type(), e.A(), e.B(), e.C(), e.unit(), e.min(), e.max()));
+        assertThrows(IllegalArgumentException.class, () -> scoring.define(2, modes));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.decathlon.core;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every competitor is already scored in DEC, so the mode's field stays the same while writers
+// keep moving competitors around in it; every read must list each of them exactly once, and be
+// no older than the mode's version when it started.
+class StandingsConsistencyTest {
+    private static final int COMPETITORS = 20_000;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"monitor", "concurrent"})
+    void readsDuringWritesListEveryCompetitorOnce(String concurrency) throws Exception {
+        ScoringService scoring = new ScoringService(false);
+        CompetitionService comp = new CompetitionService(scoring, concurrency);
+        EventRegistry r = comp.registry();
+        int dec = r.mode("DEC");
+        List<CompetitionService.Mark> marks = new ArrayList<>();
+        for (int i = 0; i < COMPETITORS; i++) marks.add(new CompetitionService.Mark("C" + i, r.firstEvent(dec), 11.0));
+        comp.scoreBatch(marks);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger fullReads = new AtomicInteger(), pageReads = new AtomicInteger();
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            long seed = w;
+            threads.add(new Thread(() -> {
+                SplittableRandom rnd = new SplittableRandom(seed);
+                while (!stop.get()) {
+                    int ev = r.firstEvent(dec) + rnd.nextInt(r.eventCount(dec));
+                    double raw = r.min(ev) + rnd.nextDouble() * (r.max(ev) - r.min(ev));
+                    comp.scoreById(rnd.nextInt(COMPETITORS), ev, Math.round(raw * 100) / 100.0);
+                }
+            }));
+        }
+        // Two of them, so one sometimes finds the other building the snapshot
+        for (int i = 0; i < 2; i++) {
+            threads.add(new Thread(() -> {
+                while (!stop.get()) {
+                    long version = comp.version(dec);
+                    CompetitionService.StandingsPage page = comp.standingsPage(dec, 0, Integer.MAX_VALUE);
+                    if (page.version() < version) errors.add("full: version " + page.version() + " read at " + version);
+                    check("full", page.rows(), COMPETITORS, errors);
+                    fullReads.incrementAndGet();
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (!stop.get()) {
+                check("top", comp.standings(dec, 0, 1000), 1000, errors);
+                check("page", comp.standings(dec, 200, 300), 300, errors);
+                pageReads.incrementAndGet();
+            }
+        }));
+        threads.forEach(Thread::start);
+        Thread.sleep(3000);
+        stop.set(true);
+        for (Thread t : threads) t.join();
+
+        assertTrue(fullReads.get() > 0 && pageReads.get() > 0, fullReads + " full reads, " + pageReads + " page reads");
+        assertEquals(List.of(), List.copyOf(errors).subList(0, Math.min(5, errors.size())),
+                errors.size() + " bad reads of " + (fullReads.get() + 2 * pageReads.get()));
+
+        // Once writes stop, a read is of the last version and has every competitor's final total
+        CompetitionService.StandingsPage last = comp.standingsPage(dec, 0, Integer.MAX_VALUE);
+        assertEquals(comp.version(dec), last.version());
+        for (Map<String, Object> row : last.rows()) {
+            assertEquals(comp.rank((String) row.get("name"), dec).total(), row.get("total"), (String) row.get("name"));
+        }
+    }
+
+    private static void check(String what, List<Map<String, Object>> rows, int expected, Queue<String> errors) {
+        Set<Object> names = new HashSet<>();
+        int last = Integer.MAX_VALUE;
+        for (Map<String, Object> row : rows) {
+            if (!names.add(row.get("name"))) errors.add(what + ": " + row.get("name") + " listed twice");
+            int total = (Integer) row.get("total");
+            if (total > last) errors.add(what + ": totals out of order at " + row.get("name"));
+            last = total;
+        }
+        if (rows.size() != expected) errors.add(what + ": " + rows.size() + " rows, expected " + expected);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.decathlon.core;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Bulk scoring on the vector path gives the same points as the scalar loop and as scoring each
+// mark on its own, on and off the tables' grid.
+class VectorScoringTest {
+    // Every mark on the grid, then random marks at full precision; an odd count leaves a tail
+    // shorter than a vector
+    private static double[] marks(EventRegistry r, int ev, SplittableRandom rnd) {
+        double lo = r.min(ev), hi = r.max(ev);
+        long first = Math.round(lo * 100);
+        int grid = (int) (Math.round(hi * 100) - first);
+        double[] raw = new double[grid + 1 + 10_001];
+        // q / 100.0 is the same double as parsing the typed mark
+        for (int i = 0; i <= grid; i++) raw[i] = (first + i) / 100.0;
+        for (int i = grid + 1; i < raw.length; i++) raw[i] = lo + rnd.nextDouble() * (hi - lo);
+        return raw;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void vectorPathMatchesScalar(boolean tables) {
+        assertNotNull(ScoringService.VECTOR, "tests run with jdk.incubator.vector added");
+        ScoringService scoring = new ScoringService(tables);
+        EventRegistry r = scoring.registry();
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (int ev = 0; ev < r.eventCount(); ev++) {
+            String what = r.modeId(r.modeOf(ev)) + " " + r.eventId(ev);
+            double[] raw = marks(r, ev, rnd);
+            int[] vector = scoring.scoreBulk(r, ev, raw);
+            assertArrayEquals(ScoringService.scoreBulkScalar(r, ev, raw), vector, what);
+            for (int i = 0; i < raw.length; i++) assertEquals(scoring.score(r, ev, raw[i]), vector[i], what + " " + raw[i]);
+        }
+    }
+}
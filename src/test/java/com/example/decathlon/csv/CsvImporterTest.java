@@ -0,0 +1,96 @@
+package com.example.decathlon.csv;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.EventRegistry;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.dto.ImportSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvImporterTest {
+    private static final int ROWS = 40_000;
+
+    @TempDir
+    Path dir;
+
+    // Rows of 500 competitors, each event scored several times, so later rows correct earlier ones
+    private Path results(List<String> lines) throws Exception {
+        EventRegistry r = new ScoringService(false).registry();
+        SplittableRandom rnd = new SplittableRandom(7);
+        lines.add("name,mode,event,raw");
+        for (int i = 0; i < ROWS; i++) {
+            int ev = rnd.nextInt(r.eventCount());
+            double raw = Math.round((r.min(ev) + rnd.nextDouble() * (r.max(ev) - r.min(ev))) * 100) / 100.0;
+            lines.add("C" + rnd.nextInt(500) + "," + r.modeId(r.modeOf(ev)) + "," + r.eventId(ev) + "," + Math.min(raw, r.max(ev)));
+        }
+        lines.add(3, "Late,DEC,100m,12.00");
+        lines.add("x,DEC,100m,fast");
+        lines.add("Late,DEC,100m,10.50");
+        Path file = dir.resolve("results.csv");
+        Files.write(file, lines);
+        return file;
+    }
+
+    private static Map<String, Object> state(CompetitionService comp, List<String> lines) {
+        Map<String, Object> state = new HashMap<>();
+        EventRegistry r = comp.registry();
+        for (int m = 0; m < r.modeCount(); m++) state.put(r.modeId(m), comp.standings(m));
+        for (String line : lines.subList(1, lines.size())) {
+            String name = line.substring(0, line.indexOf(','));
+            if (!name.equals("x")) state.put("id " + name, comp.id(name));
+        }
+        return state;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 8})
+    void importMatchesScoringTheRowsInFileOrder(int threads) throws Exception {
+        List<String> lines = new ArrayList<>();
+        Path file = results(lines);
+
+        CompetitionService expected = new CompetitionService(new ScoringService(true), "concurrent");
+        for (String line : lines.subList(1, lines.size() - 2)) {
+            String[] f = line.split(",");
+            expected.score(f[0], f[1], f[2], Double.parseDouble(f[3]));
+        }
+        expected.score("Late", "DEC", "100m", 10.50);
+
+        CompetitionService comp = new CompetitionService(new ScoringService(true), "concurrent");
+        ImportSummary s = new CsvImporter(comp).importFile(file, threads, 100);
+        assertEquals(ROWS + 3, s.rows());
+        assertEquals(1, s.rejected());
+        assertEquals(state(expected, lines), state(comp, lines));
+    }
+
+    @Test
+    void laterRowForTheSameEventWins() throws Exception {
+        CompetitionService comp = new CompetitionService(new ScoringService(true), "monitor");
+        new CsvImporter(comp).importFile(results(new ArrayList<>()), 8, 50);
+        assertEquals(new ScoringService(true).score("DEC", "100m", 10.50), comp.rank("Late", comp.registry().mode("DEC")).total());
+    }
+
+    @Test
+    void unknownModesAndEventsAreRejected() throws Exception {
+        Path file = dir.resolve("typos.csv");
+        Files.write(file, List.of("name,mode,event,raw", "Ann,DEC,100m,10.9", "Bo,DEK,100m,11.0", "Cy,DEC,100n,11.0",
+                "Dee,HEP,100m,11.0", "Eve,,100m,11.0"));
+        CompetitionService comp = new CompetitionService(new ScoringService(true), "monitor");
+        ImportSummary s = new CsvImporter(comp).importFile(file, 2, 100);
+        assertEquals(5, s.rows());
+        assertEquals(1, s.scored());
+        assertEquals(4, s.rejected());
+        assertEquals(1, comp.count());
+    }
+}
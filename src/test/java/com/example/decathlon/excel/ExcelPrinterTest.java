@@ -0,0 +1,106 @@
+package com.example.decathlon.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExcelPrinterTest {
+	@TempDir
+	Path dir;
+
+	@AfterEach
+	void restoreTempFiles() {
+		TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
+	}
+
+	private static List<String> rows(File file, int sheet) throws IOException {
+		List<String> rows = new ArrayList<>();
+		try (ExcelReader reader = new ExcelReader()) {
+			reader.forEachRow(file, sheet, (rowNumber, cells, cellCount) -> {
+				StringBuilder row = new StringBuilder().append(rowNumber);
+				for (int i = 0; i < cellCount; i++) {
+					row.append(' ').append(cells[i]);
+				}
+				rows.add(row.toString());
+			});
+		}
+		return rows;
+	}
+
+	private static long files(Path dir) throws IOException {
+		if (!Files.isDirectory(dir)) {
+			return 0;
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+
+	// Two sheets written a row at a time, interleaved, through a window much smaller than either
+	@Test
+	void streamingSheetsCanBeInterleaved() throws Exception {
+		Path temp = dir.resolve("poi");
+		TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy(temp.toFile()));
+		ExcelPrinter printer = new ExcelPrinter("book", 10);
+		List<String> men = new ArrayList<>(), women = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			printer.addRow("Men", "M" + i, i);
+			men.add(i + " M" + i + " " + (double) i);
+			if (i % 2 == 0) {
+				// Longer than anything in the sample, so it must not widen the column
+				String name = i / 2 < ExcelPrinter.SAMPLE_ROWS ? "W" + i : "W" + i + "-with-a-much-longer-name";
+				printer.addRow("Women", name, 0.5 * i);
+				women.add(i / 2 + " " + name + " " + 0.5 * i);
+			}
+		}
+		// Everything but the window went to one temporary file per sheet
+		assertEquals(2, files(temp));
+		File file = dir.resolve("book.xlsx").toFile();
+		printer.write(file);
+		assertEquals(0, files(temp));
+
+		assertEquals(men, rows(file, 0));
+		assertEquals(women, rows(file, 1));
+		try (XSSFWorkbook wb = new XSSFWorkbook(file)) {
+			assertEquals("Men", wb.getSheetName(0));
+			assertEquals("Women", wb.getSheetName(1));
+			// "W398" and "199.0" are the widest values in the sampled rows
+			assertEquals((4 + 2) * 256, wb.getSheetAt(1).getColumnWidth(0));
+			assertEquals((5 + 2) * 256, wb.getSheetAt(1).getColumnWidth(1));
+		}
+	}
+
+	@Test
+	void addAndAddRowCanBeMixedOnOneSheet() throws Exception {
+		for (boolean streaming : new boolean[] {false, true}) {
+			ExcelPrinter printer = streaming ? new ExcelPrinter("book", 10) : new ExcelPrinter("book");
+			printer.add(new Object[][] {{"Name", "Score"}, {"Ann", 900}}, "Results");
+			printer.addRow("Results", "Bo", 850);
+			printer.add(new Object[][] {{"Cy", 800}}, "Results");
+			printer.add(new Object[0][], "Empty");
+			File file = dir.resolve("mixed-" + streaming + ".xlsx").toFile();
+			printer.write(file);
+
+			assertEquals(List.of("0 Name Score", "1 Ann 900.0", "2 Bo 850.0", "3 Cy 800.0"), rows(file, 0));
+			try (XSSFWorkbook wb = new XSSFWorkbook(file)) {
+				assertEquals(2, wb.getNumberOfSheets());
+				assertEquals("Empty", wb.getSheetName(1));
+				assertTrue(wb.getSheetAt(0).getColumnWidth(0) > 0, "streaming " + streaming);
+			}
+		}
+	}
+}
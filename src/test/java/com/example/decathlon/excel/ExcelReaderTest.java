@@ -0,0 +1,123 @@
+package com.example.decathlon.excel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.decathlon.core.CompetitionService;
+import com.example.decathlon.core.ScoringService;
+import com.example.decathlon.dto.ImportSummary;
+
+class ExcelReaderTest {
+	@TempDir
+	Path dir;
+
+	// Rows of (name, mode, event, raw); a null cell is left out, a String raw is stored as text
+	private File workbook(Object[]... rows) throws Exception {
+		File file = dir.resolve("results.xlsx").toFile();
+		try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = wb.createSheet();
+			for (int r = 0; r < rows.length; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < rows[r].length; c++) {
+					if (rows[r][c] instanceof Double d) {
+						row.createCell(c).setCellValue(d);
+					} else if (rows[r][c] != null) {
+						row.createCell(c).setCellValue((String) rows[r][c]);
+					}
+				}
+			}
+			wb.write(out);
+		}
+		return file;
+	}
+
+	private static ImportSummary importResults(File file, CompetitionService comp) throws Exception {
+		try (ExcelReader reader = new ExcelReader()) {
+			return reader.importResults(file, comp, 2);
+		}
+	}
+
+	@Test
+	void onlyTheFirstRowIsAHeader() throws Exception {
+		CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+		ImportSummary s = importResults(workbook(
+				new Object[]{"name", "mode", "event", "raw"},
+				new Object[]{"Ann", "DEC", "100m", "DNS"},
+				new Object[]{"Bo", "DEC", "100m", 11.2},
+				new Object[]{"Cy", "DEC", "100m", "fast"}), comp);
+		assertEquals(3, s.rows());
+		assertEquals(1, s.scored());
+		assertEquals(2, s.rejected());
+		assertEquals(1, comp.count());
+	}
+
+	@Test
+	void rowsWithoutANameAreRejected() throws Exception {
+		CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+		ImportSummary s = importResults(workbook(
+				new Object[]{"Ann", "DEC", "100m", 10.9},
+				new Object[]{null, "DEC", "100m", 11.0},
+				new Object[]{"   ", "DEC", "100m", 11.1},
+				new Object[]{"Cy", "DEC", "100m", 11.3}), comp);
+		assertEquals(4, s.rows());
+		assertEquals(2, s.scored());
+		assertEquals(2, s.rejected());
+		assertEquals(2, comp.count());
+	}
+
+	@Test
+	void unknownModesAndEventsAreRejected() throws Exception {
+		CompetitionService comp = new CompetitionService(new ScoringService(false), "monitor");
+		ImportSummary s = importResults(workbook(
+				new Object[]{"Ann", "DEC", "100m", 10.9},
+				new Object[]{"Bo", "DEK", "100m", 11.0},
+				new Object[]{"Cy", "DEC", "100n", 11.0},
+				new Object[]{"Dee", "HEP", "100m", 11.0},
+				new Object[]{"Eve", " HEP ", "200m ", 24.5}), comp);
+		assertEquals(5, s.rows());
+		assertEquals(2, s.scored());
+		assertEquals(3, s.rejected());
+		assertEquals(2, comp.count());
+	}
+
+	// Rows without an r attribute are numbered on from the previous row, the first one 0
+	@Test
+	void rowsWithoutReferencesAreNumberedFromZero() throws Exception {
+		File file = workbook(new Object[]{"a"}, new Object[]{"b"}, new Object[]{"c"});
+		File stripped = dir.resolve("stripped.xlsx").toFile();
+		try (ZipFile in = new ZipFile(file); ZipOutputStream out = new ZipOutputStream(new FileOutputStream(stripped))) {
+			for (ZipEntry e : Collections.list(in.entries())) {
+				byte[] data = in.getInputStream(e).readAllBytes();
+				if (e.getName().startsWith("xl/worksheets/")) {
+					data = new String(data, StandardCharsets.UTF_8).replaceAll("<row r=\"\\d+\"", "<row")
+							.replaceAll("<c r=\"[A-Z]+\\d+\"", "<c").getBytes(StandardCharsets.UTF_8);
+				}
+				out.putNextEntry(new ZipEntry(e.getName()));
+				out.write(data);
+				out.closeEntry();
+			}
+		}
+		List<String> rows = new ArrayList<>();
+		try (ExcelReader reader = new ExcelReader()) {
+			reader.forEachRow(stripped, 0, (rowNumber, cells, cellCount) -> rows.add(rowNumber + " " + cells[0]));
+		}
+		assertEquals(List.of("0 a", "1 b", "2 c"), rows);
+	}
+}
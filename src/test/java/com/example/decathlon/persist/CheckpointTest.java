@@ -0,0 +1,74 @@
+package com.example.decathlon.persist;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+    private static final String[] MODES = {"A"};
+    private static final String[][] EVENTS = {{"e1", "e2"}};
+
+    @TempDir
+    Path dir;
+
+    private static Checkpoint.Entry entry(int id, String name) {
+        return new Checkpoint.Entry(id, name, new int[]{0b11}, new int[]{700, 800},
+                new int[]{1050, Checkpoint.OFF_GRID}, new double[]{0, 7.123});
+    }
+
+    @Test
+    void entriesRoundTrip() throws Exception {
+        Path file = dir.resolve("a.ckpt");
+        Checkpoint.write(file, 7, new WriteAheadLog.Position(99, 40), 2, MODES, EVENTS, List.of(entry(0, "Åsa"), entry(1, "B")));
+        Checkpoint cp = Checkpoint.load(file, MODES, EVENTS);
+        assertNotNull(cp);
+        assertEquals(99, cp.lsn());
+        assertEquals(7, cp.logId());
+        assertEquals(new WriteAheadLog.Position(99, 40), cp.position());
+        assertEquals(2, cp.tables());
+        List<Checkpoint.Entry> read = new ArrayList<>();
+        cp.forEach(read::add);
+        assertEquals(List.of("Åsa", "B"), read.stream().map(Checkpoint.Entry::name).toList());
+        assertArrayEquals(new int[]{1050, Checkpoint.OFF_GRID}, read.get(0).marks());
+        assertEquals(7.123, read.get(1).exact()[1]);
+    }
+
+    @Test
+    void namesTooLongForTheLengthFieldAreRefused() {
+        Path file = dir.resolve("b.ckpt");
+        List<Checkpoint.Entry> entries = List.of(entry(0, "x".repeat(0x10000)));
+        assertThrows(IllegalArgumentException.class, () -> Checkpoint.write(file, 7, new WriteAheadLog.Position(16, 16), 1, MODES, EVENTS, entries));
+        assertEquals(false, Files.exists(file));
+    }
+
+    // As an older build wrote a name longer than the length field: the checksum holds, the entries do not
+    @Test
+    void entriesThatDoNotParseAreNotLoaded() throws Exception {
+        Path file = dir.resolve("c.ckpt");
+        Checkpoint.write(file, 7, new WriteAheadLog.Position(16, 16), 1, MODES, EVENTS, List.of(entry(0, "abc")));
+        byte[] b = Files.readAllBytes(file);
+        // The only entry ends the file: length, name, mask, one mark on the grid and one off it
+        int name = b.length - (2 + 3 + 4 + 8 + 16);
+        assertEquals(3, ByteBuffer.wrap(b).getShort(name));
+        ByteBuffer.wrap(b).putShort(name, (short) 2);
+        CRC32 crc = new CRC32();
+        crc.update(b, 20, b.length - 20);
+        ByteBuffer.wrap(b).putInt(16, (int) crc.getValue());
+        Files.write(file, b);
+        assertNull(Checkpoint.load(file, MODES, EVENTS));
+        assertNull(Checkpoint.load(file, MODES, new String[][]{Arrays.copyOf(EVENTS[0], 1)}));
+    }
+}
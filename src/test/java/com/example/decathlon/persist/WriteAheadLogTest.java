@@ -0,0 +1,118 @@
+package com.example.decathlon.persist;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    private static final WriteAheadLog.Replay IGNORE = new WriteAheadLog.Replay() {
+        public void add(String name, int id) { }
+        public void score(String name, String mode, String event, double raw) { }
+        public void tables(int version) { }
+    };
+
+    private static class Recorder implements WriteAheadLog.Replay {
+        final List<String> records = new ArrayList<>();
+        public void add(String name, int id) { records.add("add " + name + " " + id); }
+        public void score(String name, String mode, String event, double raw) { records.add("score " + name + " " + mode + " " + event + " " + raw); }
+        public void tables(int version) { records.add("tables " + version); }
+    }
+
+    private static void record(ByteArrayOutputStream out, ByteBuffer body) {
+        byte[] b = body.array();
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        out.writeBytes(ByteBuffer.allocate(8).putInt(b.length).putInt((int) crc.getValue()).array());
+        out.writeBytes(b);
+    }
+
+    @Test
+    void recordsReplayInOrder() throws Exception {
+        Path file = dir.resolve("a.wal");
+        try (WriteAheadLog log = WriteAheadLog.open(file, 100, 8, IGNORE)) {
+            log.appendTables(2);
+            log.appendAdd("Åsa", 0);
+            log.awaitDurable(log.appendScore("Åsa", "DEC", "100m", 10.5));
+        }
+        Recorder replayed = new Recorder();
+        WriteAheadLog.open(file, 100, 8, replayed).close();
+        assertEquals(List.of("tables 2", "add Åsa 0", "score Åsa DEC 100m 10.5"), replayed.records);
+    }
+
+    // Older builds wrote the length of a name over 65535 bytes wrapped; the record's checksum
+    // still holds, so it is skipped and the records after it are replayed
+    @Test
+    void intactRecordThatDoesNotParseIsSkipped() throws Exception {
+        byte[] name = "x".repeat(70_000).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ByteBuffer.allocate(8).putInt(0x4457414c).putInt(1).array());
+        record(out, ByteBuffer.allocate(1 + 2 + name.length + 4).put((byte) 3).putShort((short) name.length).put(name).putInt(0));
+        record(out, ByteBuffer.allocate(1 + 2 + 1 + 4).put((byte) 3).putShort((short) 1).put((byte) 'A').putInt(1));
+        Path file = dir.resolve("b.wal");
+        Files.write(file, out.toByteArray());
+
+        Recorder replayed = new Recorder();
+        WriteAheadLog.open(file, 100, 8, replayed).close();
+        assertEquals(List.of("add A 1"), replayed.records);
+        assertEquals(out.size(), Files.size(file));
+    }
+
+    @Test
+    void coversOnlyItsOwnRecordBoundaries() throws Exception {
+        Path file = dir.resolve("d.wal");
+        WriteAheadLog.Position empty, one, two;
+        long id;
+        try (WriteAheadLog log = WriteAheadLog.open(file, 100, 8, IGNORE)) {
+            id = log.id();
+            empty = log.position();
+            log.awaitDurable(log.appendAdd("A", 0));
+            one = log.position();
+            log.awaitDurable(log.appendAdd("B", 1));
+            two = log.position();
+        }
+        assertEquals(new WriteAheadLog.Position(16, 16), empty);
+        assertEquals(one.lsn(), two.lastRecord());
+        for (WriteAheadLog.Position at : List.of(empty, one, two)) assertEquals(true, WriteAheadLog.covers(file, id, at), at.toString());
+        assertEquals(false, WriteAheadLog.covers(file, id + 1, two));
+        assertEquals(false, WriteAheadLog.covers(file, id, new WriteAheadLog.Position(two.lsn() - 1, two.lastRecord())));
+        assertEquals(false, WriteAheadLog.covers(file, id, new WriteAheadLog.Position(two.lsn(), one.lastRecord())));
+        assertEquals(false, WriteAheadLog.covers(dir.resolve("missing.wal"), id, empty));
+
+        // Reopened, the log keeps its id and where its last record starts
+        try (WriteAheadLog log = WriteAheadLog.open(file, 100, 8, IGNORE)) {
+            assertEquals(id, log.id());
+            assertEquals(two, log.position());
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(one.lsn());
+        }
+        assertEquals(false, WriteAheadLog.covers(file, id, two));
+        assertEquals(true, WriteAheadLog.covers(file, id, one));
+    }
+
+    @Test
+    void namesTooLongForTheLengthFieldAreRefused() throws Exception {
+        try (WriteAheadLog log = WriteAheadLog.open(dir.resolve("c.wal"), 100, 8, IGNORE)) {
+            String name = "x".repeat(0x10000);
+            assertThrows(IllegalArgumentException.class, () -> log.appendAdd(name, 0));
+            assertThrows(IllegalArgumentException.class, () -> log.appendScore(name, "DEC", "100m", 10.5));
+            assertEquals(true, log.empty());
+        }
+    }
+}